@@ -3,6 +3,7 @@ package org.dolphinemu.dolphinemu;
 import android.app.Application;
 import android.content.Context;
 
+import org.dolphinemu.dolphinemu.services.PlaySessionStore;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.utils.PermissionsHandler;
 import org.dolphinemu.dolphinemu.utils.VolleyUtil;
@@ -18,6 +19,7 @@ public class DolphinApplication extends Application
     application = this;
     VolleyUtil.init(getApplicationContext());
     System.loadLibrary("main");
+    PlaySessionStore.init();
 
     if (PermissionsHandler.hasWriteAccess(getApplicationContext()))
       DirectoryInitialization.start(getApplicationContext());
@@ -351,6 +351,21 @@ public final class NativeLibrary
 
   public static native void ReloadConfig();
 
+  /**
+   * Gets the language that game titles are shown in, like the native game list does.
+   *
+   * @param wii    Whether the game is a Wii game, since GameCube and Wii have their own language.
+   * @param region The region of the game, which the language gets adjusted for unless
+   *               the region settings are overridden.
+   * @return the DiscIO::Language value of the language.
+   */
+  public static native int GetLanguageAdjustedForRegion(boolean wii, int region);
+
+  /**
+   * @return whether titles from the title lists in the Sys directory should be used.
+   */
+  public static native boolean UseBuiltinTitleDatabase();
+
   /**
    * Initializes the native parts of the app.
    *
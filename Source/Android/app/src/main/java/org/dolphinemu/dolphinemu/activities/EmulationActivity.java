@@ -212,6 +212,7 @@ public final class EmulationActivity extends AppCompatActivity
       launcher.putExtra(EXTRA_SELECTED_TITLE, gameFile.getTitle());
       launcher.putExtra(EXTRA_SELECTED_GAMEID, gameFile.getGameId());
       launcher.putExtra(EXTRA_PLATFORM, gameFile.getPlatform());
+      gameFile.close();
     }
     else
     {
@@ -853,7 +854,7 @@ public final class EmulationActivity extends AppCompatActivity
             (dialog, indexSelected) ->
             {
               editor.putInt("wiiController", indexSelected);
-              NativeLibrary.SetConfig("WiimoteNew.ini", "Wiimote1", "Extension",
+              SettingsFile.setConfig(SettingsFile.FILE_NAME_WIIMOTE, "Wiimote1", "Extension",
                       getResources().getStringArray(R.array.controllersValues)[indexSelected]);
               NativeLibrary.ReloadWiimoteConfig();
             });
@@ -979,7 +980,7 @@ public final class EmulationActivity extends AppCompatActivity
       NativeLibrary.SetUserSetting(mSelectedGameId, Settings.SECTION_CONTROLS,
               SettingsFile.KEY_WIIBIND_IR_VERTICAL_OFFSET,
               text_slider_value_vertical_offset.getText().toString());
-      NativeLibrary.SaveGameIniFile(mSelectedGameId);
+      SettingsFile.saveGameIniFile(mSelectedGameId);
 
       NativeLibrary.ReloadWiimoteConfig();
 
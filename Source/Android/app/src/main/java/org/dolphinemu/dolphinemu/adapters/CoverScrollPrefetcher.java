@@ -0,0 +1,125 @@
+package org.dolphinemu.dolphinemu.adapters;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.services.CoverService;
+import org.dolphinemu.dolphinemu.utils.PicassoUtils;
+
+/**
+ * Decodes the covers of the games that are about to scroll into view, so that binding their
+ * cards finds the covers in Picasso's memory cache instead of starting a decode.
+ *
+ * Only the lines ahead in the direction of scrolling are prefetched, and reversing the direction
+ * cancels the decodes that haven't started yet, since those cards are now moving away.
+ */
+public final class CoverScrollPrefetcher extends RecyclerView.OnScrollListener
+{
+  public interface GameProvider
+  {
+    /**
+     * @return The game at the adapter position, or null if there is no game there.
+     */
+    GameFile getGame(int position);
+  }
+
+  private final GameProvider mGames;
+  private final int mLookaheadLines;
+
+  // Identifies the decodes started while scrolling in the current direction
+  private Object mTag = new Object();
+  private int mDirection = 0;
+  private int mPrefetchedUpTo = RecyclerView.NO_POSITION;
+
+  /**
+   * @param games          Where to get the games at each position of the scrolled view from.
+   * @param lookaheadLines How many rows (or columns, for a horizontal list) to prefetch.
+   */
+  public CoverScrollPrefetcher(GameProvider games, int lookaheadLines)
+  {
+    mGames = games;
+    mLookaheadLines = lookaheadLines;
+  }
+
+  @Override
+  public void onScrolled(RecyclerView recyclerView, int dx, int dy)
+  {
+    RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+    if (layoutManager == null || recyclerView.getAdapter() == null)
+      return;
+
+    int delta = layoutManager.canScrollVertically() ? dy : dx;
+    if (delta == 0)
+      return;
+
+    int direction = Integer.signum(delta);
+    if (direction != mDirection)
+    {
+      PicassoUtils.cancelCoverPrefetch(mTag);
+      mTag = new Object();
+      mDirection = direction;
+      mPrefetchedUpTo = RecyclerView.NO_POSITION;
+    }
+
+    // Works with any layout manager, including the one leanback rows use
+    int firstVisible = Integer.MAX_VALUE;
+    int lastVisible = RecyclerView.NO_POSITION;
+    for (int i = 0; i < recyclerView.getChildCount(); i++)
+    {
+      View child = recyclerView.getChildAt(i);
+      int position = recyclerView.getChildAdapterPosition(child);
+      if (position != RecyclerView.NO_POSITION)
+      {
+        firstVisible = Math.min(firstVisible, position);
+        lastVisible = Math.max(lastVisible, position);
+      }
+    }
+    if (lastVisible == RecyclerView.NO_POSITION)
+      return;
+
+    int itemsPerLine = layoutManager instanceof GridLayoutManager ?
+            ((GridLayoutManager) layoutManager).getSpanCount() : 1;
+    int lookahead = mLookaheadLines * itemsPerLine;
+    int itemCount = recyclerView.getAdapter().getItemCount();
+
+    if (direction > 0)
+    {
+      int start = mPrefetchedUpTo == RecyclerView.NO_POSITION ?
+              lastVisible + 1 : Math.max(lastVisible + 1, mPrefetchedUpTo + 1);
+      int end = Math.min(itemCount - 1, lastVisible + lookahead);
+      for (int position = start; position <= end; position++)
+      {
+        prefetch(position);
+      }
+      mPrefetchedUpTo = Math.max(end, start - 1);
+    }
+    else
+    {
+      int start = mPrefetchedUpTo == RecyclerView.NO_POSITION ?
+              firstVisible - 1 : Math.min(firstVisible - 1, mPrefetchedUpTo - 1);
+      int end = Math.max(0, firstVisible - lookahead);
+      for (int position = start; position >= end; position--)
+      {
+        prefetch(position);
+      }
+      mPrefetchedUpTo = Math.min(end, start + 1);
+    }
+  }
+
+  private void prefetch(int position)
+  {
+    GameFile game = mGames.getGame(position);
+    if (game == null)
+      return;
+
+    Object tag = mTag;
+    CoverService.getCover(game).addListener(cover ->
+    {
+      // Lookups that finish after the direction has changed aren't worth decoding anymore
+      if (cover != null && tag == mTag)
+        PicassoUtils.prefetchCover(cover, tag);
+    });
+  }
+}
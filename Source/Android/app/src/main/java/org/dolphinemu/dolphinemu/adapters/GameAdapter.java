@@ -4,6 +4,8 @@ import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.graphics.Rect;
 import android.support.v4.app.FragmentActivity;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -18,18 +20,37 @@ import org.dolphinemu.dolphinemu.features.settings.ui.SettingsActivity;
 import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
+import org.dolphinemu.dolphinemu.utils.Fnv1a;
 import org.dolphinemu.dolphinemu.utils.PicassoUtils;
 import org.dolphinemu.dolphinemu.viewholders.GameViewHolder;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 public final class GameAdapter extends RecyclerView.Adapter<GameViewHolder> implements
         View.OnClickListener,
         View.OnLongClickListener
 {
-  private List<GameFile> mGameFiles;
+  private static final DiffUtil.ItemCallback<GameFile> DIFF_CALLBACK =
+          new DiffUtil.ItemCallback<GameFile>()
+          {
+            @Override
+            public boolean areItemsTheSame(GameFile oldItem, GameFile newItem)
+            {
+              return oldItem.getPath().equals(newItem.getPath());
+            }
+
+            @Override
+            public boolean areContentsTheSame(GameFile oldItem, GameFile newItem)
+            {
+              // Everything that onBindViewHolder shows
+              return oldItem.getTitle().equals(newItem.getTitle()) &&
+                      oldItem.getCompany().equals(newItem.getCompany()) &&
+                      oldItem.getGameTdbId().equals(newItem.getGameTdbId());
+            }
+          };
+
+  private final AsyncListDiffer<GameFile> mDiffer = new AsyncListDiffer<>(this, DIFF_CALLBACK);
 
   /**
    * Initializes the adapter's observer, which watches for changes to the dataset. The adapter will
@@ -37,7 +58,7 @@ public final class GameAdapter extends RecyclerView.Adapter<GameViewHolder> impl
    */
   public GameAdapter()
   {
-    mGameFiles = new ArrayList<>();
+    super.setHasStableIds(true);
   }
 
   /**
@@ -72,7 +93,7 @@ public final class GameAdapter extends RecyclerView.Adapter<GameViewHolder> impl
   @Override
   public void onBindViewHolder(GameViewHolder holder, int position)
   {
-    GameFile gameFile = mGameFiles.get(position);
+    GameFile gameFile = mDiffer.getCurrentList().get(position);
     PicassoUtils.loadGameBanner(holder.imageScreenshot, gameFile);
 
     holder.textGameTitle.setText(gameFile.getTitle());
@@ -81,6 +102,15 @@ public final class GameAdapter extends RecyclerView.Adapter<GameViewHolder> impl
     holder.gameFile = gameFile;
   }
 
+  /**
+   * @return The game at the position, or null if the position is out of range.
+   */
+  public GameFile getGame(int position)
+  {
+    List<GameFile> gameFiles = mDiffer.getCurrentList();
+    return position >= 0 && position < gameFiles.size() ? gameFiles.get(position) : null;
+  }
+
   /**
    * Called by the LayoutManager to find out how much data we have.
    *
@@ -89,28 +119,42 @@ public final class GameAdapter extends RecyclerView.Adapter<GameViewHolder> impl
   @Override
   public int getItemCount()
   {
-    return mGameFiles.size();
+    return mDiffer.getCurrentList().size();
+  }
+
+  /**
+   * Derives a stable ID from the game's path, so that a card keeps its view
+   * (and its loaded cover) when games are added or removed around it.
+   *
+   * @param position The position of the game in the dataset.
+   * @return A 64-bit hash of the game's path.
+   */
+  @Override
+  public long getItemId(int position)
+  {
+    return Fnv1a.hash(mDiffer.getCurrentList().get(position).getPath());
   }
 
   /**
    * Tell Android whether or not each item in the dataset has a stable identifier.
    *
-   * @param hasStableIds ignored.
+   * @param hasStableIds ignored, the IDs are always stable.
    */
   @Override
   public void setHasStableIds(boolean hasStableIds)
   {
-    super.setHasStableIds(false);
+    super.setHasStableIds(true);
   }
 
   /**
    * When a load is finished, call this to replace the existing data
-   * with the newly-loaded data.
+   * with the newly-loaded data. The difference to the current data is
+   * computed on a background thread, and only the games that were
+   * actually added, removed, moved or changed get rebound.
    */
   public void swapDataSet(List<GameFile> gameFiles)
   {
-    mGameFiles = gameFiles;
-    notifyDataSetChanged();
+    mDiffer.submitList(gameFiles);
   }
 
   /**
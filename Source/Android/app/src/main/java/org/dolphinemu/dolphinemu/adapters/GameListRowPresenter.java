@@ -0,0 +1,38 @@
+package org.dolphinemu.dolphinemu.adapters;
+
+import android.support.v17.leanback.widget.ListRow;
+import android.support.v17.leanback.widget.ListRowPresenter;
+import android.support.v17.leanback.widget.ObjectAdapter;
+import android.support.v17.leanback.widget.RowPresenter;
+import android.view.ViewGroup;
+
+import org.dolphinemu.dolphinemu.model.GameFile;
+
+/**
+ * A ListRowPresenter that prefetches the covers of the cards ahead while a row is scrolled.
+ */
+public final class GameListRowPresenter extends ListRowPresenter
+{
+  private static final int COVER_PREFETCH_CARDS = 5;
+
+  @Override
+  protected RowPresenter.ViewHolder createRowViewHolder(ViewGroup parent)
+  {
+    ListRowPresenter.ViewHolder holder =
+            (ListRowPresenter.ViewHolder) super.createRowViewHolder(parent);
+
+    // The holder gets rebound to other rows, so look up the row on every scroll
+    holder.getGridView().addOnScrollListener(new CoverScrollPrefetcher(position ->
+    {
+      ObjectAdapter row = holder.getRow() instanceof ListRow ?
+              ((ListRow) holder.getRow()).getAdapter() : null;
+      if (row == null || position < 0 || position >= row.size())
+        return null;
+
+      Object item = row.get(position);
+      return item instanceof GameFile ? (GameFile) item : null;
+    }, COVER_PREFETCH_CARDS));
+
+    return holder;
+  }
+}
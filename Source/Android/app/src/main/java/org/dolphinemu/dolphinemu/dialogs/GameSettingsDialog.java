@@ -9,6 +9,7 @@ import android.widget.Toast;
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.features.settings.ui.MenuTag;
 import org.dolphinemu.dolphinemu.features.settings.ui.SettingsActivity;
+import org.dolphinemu.dolphinemu.model.TitleDatabase;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 
@@ -40,7 +41,10 @@ public class GameSettingsDialog extends DialogFragment
     String gameId = getArguments().getString(ARG_GAMEID);
     int platform = getArguments().getInt(ARG_PLATFORM);
 
-    builder.setTitle(getActivity().getString(R.string.preferences_game_settings) + ": " + gameId)
+    TitleDatabase titleDatabase = TitleDatabase.get();
+    String gameName = titleDatabase == null ? gameId : titleDatabase.describe(gameId, platform);
+
+    builder.setTitle(getActivity().getString(R.string.preferences_game_settings) + ": " + gameName)
             .setItems(platform == Platform.GAMECUBE.toInt() ?
                     R.array.gameSettingsMenusGC :
                     R.array.gameSettingsMenusWii, (dialog, which) ->
@@ -1,10 +1,22 @@
 package org.dolphinemu.dolphinemu.features.settings.model;
 
+import org.dolphinemu.dolphinemu.features.settings.utils.SettingsFile;
+
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A semantically-related group of Settings objects. These Settings are
  * internally stored as a HashMap.
+ *
+ * Values read from a file are kept as they appear in the file until they are first asked for,
+ * since most screens only look at a few of them. Values that never get asked for are written
+ * back exactly as they were read.
+ *
+ * The section remembers what each value looked like when it was read, so that it can tell which
+ * values have changed since, no matter whether a Setting was replaced or modified in place.
  */
 public final class SettingSection
 {
@@ -12,6 +24,47 @@ public final class SettingSection
 
   private HashMap<String, Setting> mSettings = new HashMap<>();
 
+  // Values from a file that haven't been turned into a Setting yet
+  private HashMap<String, RawValue> mRawValues = new HashMap<>();
+
+  // What the values in mSettings looked like when they were read or last saved
+  private HashMap<String, LoadedValue> mLoadedValues = new HashMap<>();
+
+  private static final class LoadedValue
+  {
+    // The value as it is in the file
+    final String text;
+
+    // What getValueAsString returned for the value at that time
+    final String valueAsString;
+
+    LoadedValue(String text, String valueAsString)
+    {
+      this.text = text;
+      this.valueAsString = valueAsString;
+    }
+  }
+
+  private static final class RawValue
+  {
+    final char[] buffer;
+    final int start;
+    final int end;
+
+    RawValue(char[] buffer, int start, int end)
+    {
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public String toString()
+    {
+      return new String(buffer, start, end - start);
+    }
+  }
+
   /**
    * Create a new SettingSection with no Settings in it.
    *
@@ -34,9 +87,27 @@ public final class SettingSection
    */
   public void putSetting(Setting setting)
   {
+    // Keep track of the value that is being replaced, to compare the new one with
+    if (mRawValues.containsKey(setting.getKey()))
+      getSetting(setting.getKey());
+
     mSettings.put(setting.getKey(), setting);
   }
 
+  /**
+   * Adds a value as it appears in a file, without working out its type yet.
+   *
+   * @param buffer The contents of the file, which must not be modified afterwards.
+   * @param start  Where the value starts in the buffer.
+   * @param end    Where the value ends in the buffer, exclusive.
+   */
+  public void putRawValue(String key, char[] buffer, int start, int end)
+  {
+    mRawValues.put(key, new RawValue(buffer, start, end));
+    mSettings.remove(key);
+    mLoadedValues.remove(key);
+  }
+
   /**
    * Convenience method; gets a value directly from the backing HashMap.
    *
@@ -45,19 +116,127 @@ public final class SettingSection
    */
   public Setting getSetting(String key)
   {
-    return mSettings.get(key);
+    Setting setting = mSettings.get(key);
+    if (setting == null)
+    {
+      RawValue rawValue = mRawValues.remove(key);
+      if (rawValue != null)
+      {
+        setting = SettingsFile.settingFromValue(key, mName, rawValue.buffer, rawValue.start,
+                rawValue.end);
+        mSettings.put(key, setting);
+        mLoadedValues.put(key, new LoadedValue(rawValue.toString(), setting.getValueAsString()));
+      }
+    }
+    return setting;
+  }
+
+  /**
+   * @return The keys of all values in this section, whether they have been asked for or not.
+   */
+  public Set<String> getKeys()
+  {
+    Set<String> keys = new HashSet<>(mSettings.keySet());
+    keys.addAll(mRawValues.keySet());
+    return keys;
   }
 
+  /**
+   * Like getSetting(key).getValueAsString(), but returns values that haven't changed since they
+   * were read exactly as they were read, without turning them into a Setting.
+   *
+   * @return The value, or null if there is no value for the key.
+   */
+  public String getValueAsString(String key)
+  {
+    RawValue rawValue = mRawValues.get(key);
+    if (rawValue != null)
+      return rawValue.toString();
+
+    Setting setting = mSettings.get(key);
+    if (setting == null)
+      return null;
+
+    String valueAsString = setting.getValueAsString();
+    LoadedValue loadedValue = mLoadedValues.get(key);
+    if (loadedValue != null && loadedValue.valueAsString.equals(valueAsString))
+      return loadedValue.text;
+    return valueAsString;
+  }
+
+  /**
+   * @return true if the value for the key was added or has changed since it was read or saved.
+   */
+  public boolean isDirty(String key)
+  {
+    Setting setting = mSettings.get(key);
+    if (setting == null)
+      return false;
+
+    LoadedValue loadedValue = mLoadedValues.get(key);
+    return loadedValue == null || !loadedValue.valueAsString.equals(setting.getValueAsString());
+  }
+
+  /**
+   * @return true if any value in this section was added or has changed since it was read or
+   * saved.
+   */
+  public boolean isDirty()
+  {
+    for (String key : mSettings.keySet())
+    {
+      if (isDirty(key))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Remembers the current values as the ones that are in the file, after the section was saved.
+   */
+  public void markClean()
+  {
+    for (Map.Entry<String, Setting> entry : mSettings.entrySet())
+    {
+      String key = entry.getKey();
+      mLoadedValues.put(key,
+              new LoadedValue(getValueAsString(key), entry.getValue().getValueAsString()));
+    }
+  }
+
+  /**
+   * Turns every value into a Setting first. Use getKeys and getValueAsString to avoid that.
+   */
   public HashMap<String, Setting> getSettings()
   {
+    for (String key : new HashSet<>(mRawValues.keySet()))
+    {
+      getSetting(key);
+    }
     return mSettings;
   }
 
   public void mergeSection(SettingSection settingSection)
   {
+    // Values that were read from a file stay unchanged
     for (Setting setting : settingSection.mSettings.values())
     {
-      putSetting(setting);
+      String key = setting.getKey();
+      mRawValues.remove(key);
+      mSettings.put(key, setting);
+
+      LoadedValue loadedValue = settingSection.mLoadedValues.get(key);
+      if (loadedValue != null)
+        mLoadedValues.put(key, loadedValue);
+      else
+        mLoadedValues.remove(key);
+    }
+
+    for (Map.Entry<String, RawValue> entry : settingSection.mRawValues.entrySet())
+    {
+      mRawValues.put(entry.getKey(), entry.getValue());
+      mSettings.remove(entry.getKey());
+      mLoadedValues.remove(entry.getKey());
     }
   }
 }
@@ -4,9 +4,11 @@ import android.text.TextUtils;
 
 import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.features.settings.ui.SettingsActivityView;
+import org.dolphinemu.dolphinemu.features.settings.utils.IniDocument;
 import org.dolphinemu.dolphinemu.features.settings.utils.SettingsFile;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -36,6 +38,10 @@ public class Settings
 
   private String gameId;
 
+  // Set when the settings have been cleared, so that everything gets written even though nothing
+  // left is dirty
+  private boolean isCleared;
+
   private static final Map<String, List<String>> configFileSectionsMap = new HashMap<>();
 
   static
@@ -79,6 +85,9 @@ public class Settings
 
   private HashMap<String, SettingSection> sections = new Settings.SettingsSectionMap();
 
+  // The config files as they were read, so that saving only replaces the values that changed
+  private HashMap<String, IniDocument> documents = new HashMap<>();
+
   public SettingSection getSection(String sectionName)
   {
     return sections.get(sectionName);
@@ -97,6 +106,8 @@ public class Settings
   public void loadSettings(SettingsActivityView view)
   {
     sections = new Settings.SettingsSectionMap();
+    documents.clear();
+    isCleared = false;
 
     if (TextUtils.isEmpty(gameId))
     {
@@ -113,7 +124,9 @@ public class Settings
     for (Map.Entry<String, List<String>> entry : configFileSectionsMap.entrySet())
     {
       String fileName = entry.getKey();
-      sections.putAll(SettingsFile.readFile(fileName, view));
+      IniDocument document = SettingsFile.readDocument(fileName, view);
+      documents.put(fileName, document);
+      sections.putAll(SettingsFile.readSections(fileName, document));
     }
   }
 
@@ -164,6 +177,7 @@ public class Settings
     {
       view.showToastMessage("Saved settings to INI files");
 
+      boolean anyFileSaved = false;
       for (Map.Entry<String, List<String>> entry : configFileSectionsMap.entrySet())
       {
         String fileName = entry.getKey();
@@ -174,23 +188,60 @@ public class Settings
           iniSections.put(section, sections.get(section));
         }
 
-        SettingsFile.saveFile(fileName, iniSections, view);
+        // Files without any changes are left alone
+        if (!isCleared && !isAnyDirty(iniSections.values()))
+          continue;
+
+        if (SettingsFile.saveFile(fileName, iniSections, documents.get(fileName), view))
+        {
+          markClean(iniSections.values());
+          anyFileSaved = true;
+        }
       }
 
       // Notify the native code of the changes
-      NativeLibrary.ReloadConfig();
+      if (anyFileSaved)
+        NativeLibrary.ReloadConfig();
     }
     else
     {
       // custom game settings
       view.showToastMessage("Saved settings for " + gameId);
-      SettingsFile.saveCustomGameSettings(gameId, sections);
+      if (isCleared || isAnyDirty(sections.values()))
+      {
+        SettingsFile.saveCustomGameSettings(gameId, sections);
+        markClean(sections.values());
+      }
+    }
+
+    isCleared = false;
+  }
+
+  private static boolean isAnyDirty(Collection<SettingSection> sections)
+  {
+    for (SettingSection section : sections)
+    {
+      if (section.isDirty())
+        return true;
+    }
+    return false;
+  }
+
+  private static void markClean(Collection<SettingSection> sections)
+  {
+    for (SettingSection section : sections)
+    {
+      section.markClean();
     }
   }
 
   public void clearSettings()
   {
     sections.clear();
+    isCleared = true;
+
+    // Start the files over rather than keeping what was in them
+    documents.clear();
   }
 
   public boolean gameIniContainsJunk()
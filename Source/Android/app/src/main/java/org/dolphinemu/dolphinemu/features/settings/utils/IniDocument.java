@@ -0,0 +1,258 @@
+package org.dolphinemu.dolphinemu.features.settings.utils;
+
+import org.dolphinemu.dolphinemu.features.settings.model.SettingSection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An .ini file as it was read, line by line, so that it can be written back with only the values
+ * that have changed replaced. Comments, blank lines, the order of sections and keys, duplicate
+ * keys and lines that can't be parsed are all kept as they are, so that files edited by hand
+ * don't get reformatted by saving a single setting.
+ */
+public final class IniDocument
+{
+  static final class Line
+  {
+    // null for blank lines and comments
+    final IniTokenizer.Token token;
+
+    // Where the line is in the buffer, including the line break
+    final int start;
+    final int end;
+
+    // The section the line belongs to, as it is named in the file
+    final String section;
+
+    final String key;
+    final int valueStart;
+    final int valueEnd;
+
+    // Set for values that are overridden by a later line with the same key
+    boolean isShadowed;
+
+    Line(IniTokenizer.Token token, int start, int end, String section, String key,
+            int valueStart, int valueEnd)
+    {
+      this.token = token;
+      this.start = start;
+      this.end = end;
+      this.section = section;
+      this.key = key;
+      this.valueStart = valueStart;
+      this.valueEnd = valueEnd;
+    }
+  }
+
+  private char[] mBuffer;
+  private int mLength;
+  private String mLineSeparator;
+
+  private ArrayList<Line> mLines;
+
+  // The keys of each section, and the line after which keys that get added to it are inserted
+  private HashMap<String, HashMap<String, Line>> mKeys;
+  private HashMap<String, Integer> mLastLines;
+
+  IniDocument(char[] buffer, int length)
+  {
+    setContent(buffer, length);
+  }
+
+  /**
+   * Creates a document with the same contents as another one. The contents are shared, which is
+   * safe since they are never changed, only replaced by setContent.
+   */
+  IniDocument(IniDocument other)
+  {
+    mBuffer = other.mBuffer;
+    mLength = other.mLength;
+    mLineSeparator = other.mLineSeparator;
+    mLines = other.mLines;
+    mKeys = other.mKeys;
+    mLastLines = other.mLastLines;
+  }
+
+  char[] getBuffer()
+  {
+    return mBuffer;
+  }
+
+  List<Line> getLines()
+  {
+    return mLines;
+  }
+
+  /**
+   * Replaces the contents of the document, after they have been written to the file.
+   */
+  void setContent(char[] buffer, int length)
+  {
+    mBuffer = buffer;
+    mLength = length;
+    mLineSeparator = findLineSeparator(buffer, length);
+
+    mLines = new ArrayList<>();
+    mKeys = new HashMap<>();
+    mLastLines = new HashMap<>();
+
+    IniTokenizer tokenizer = new IniTokenizer(buffer, length);
+    String section = null;
+    int position = 0;
+    for (IniTokenizer.Token token; (token = tokenizer.next()) != null; )
+    {
+      // Blank lines and comments before this line
+      if (tokenizer.getRawLineStart() > position)
+        mLines.add(new Line(null, position, tokenizer.getRawLineStart(), section, null, 0, 0));
+      position = tokenizer.getRawLineEnd();
+
+      if (token == IniTokenizer.Token.SECTION)
+      {
+        section = tokenizer.getSectionName();
+        if (!mKeys.containsKey(section))
+          mKeys.put(section, new HashMap<>());
+        mLastLines.put(section, mLines.size());
+        mLines.add(new Line(token, tokenizer.getRawLineStart(), position, section, null, 0, 0));
+      }
+      else if (token == IniTokenizer.Token.SETTING && section != null)
+      {
+        Line line = new Line(token, tokenizer.getRawLineStart(), position, section,
+                tokenizer.getKey(), tokenizer.getValueStart(), tokenizer.getValueEnd());
+        Line previous = mKeys.get(section).put(line.key, line);
+        if (previous != null)
+          previous.isShadowed = true;
+        mLastLines.put(section, mLines.size());
+        mLines.add(line);
+      }
+      else
+      {
+        mLines.add(new Line(token, tokenizer.getRawLineStart(), position, section, null, 0, 0));
+      }
+    }
+
+    if (mLength > position)
+      mLines.add(new Line(null, position, mLength, section, null, 0, 0));
+  }
+
+  /**
+   * Builds the new contents of the file. Values that have changed are replaced in their lines,
+   * values that are new are added at the end of their section, and sections that are new are
+   * added at the end of the file. Everything else is copied as it is, including the sections
+   * that aren't passed in.
+   */
+  StringBuilder render(Map<String, SettingSection> sections)
+  {
+    StringBuilder builder = new StringBuilder(mLength + 256);
+
+    for (int i = 0; i < mLines.size(); i++)
+    {
+      Line line = mLines.get(i);
+      SettingSection section = line.section == null ? null : sections.get(line.section);
+
+      if (section != null && line.token == IniTokenizer.Token.SETTING && !line.isShadowed)
+        appendSetting(builder, line, section);
+      else
+        builder.append(mBuffer, line.start, line.end - line.start);
+
+      if (section != null && mLastLines.get(line.section) == i)
+        appendNewKeys(builder, section, mKeys.get(line.section).keySet());
+    }
+
+    for (SettingSection section : sections.values())
+    {
+      if (section != null && !mKeys.containsKey(section.getName()) &&
+              !section.getKeys().isEmpty())
+      {
+        appendLineBreakIfNeeded(builder);
+        builder.append('[').append(section.getName()).append(']').append(mLineSeparator);
+        appendNewKeys(builder, section, new HashSet<>());
+      }
+    }
+
+    return builder;
+  }
+
+  /**
+   * @return true if the contents are the same as the contents of the document.
+   */
+  boolean isUnchanged(CharSequence content)
+  {
+    if (content.length() != mLength)
+      return false;
+
+    for (int i = 0; i < mLength; i++)
+    {
+      if (content.charAt(i) != mBuffer[i])
+        return false;
+    }
+    return true;
+  }
+
+  private void appendSetting(StringBuilder builder, Line line, SettingSection section)
+  {
+    String value = section.getValueAsString(line.key);
+    if (value == null || isSameValue(line, value))
+    {
+      builder.append(mBuffer, line.start, line.end - line.start);
+    }
+    else if (!value.isEmpty())
+    {
+      builder.append(mBuffer, line.start, line.valueStart - line.start);
+      builder.append(value);
+      builder.append(mBuffer, line.valueEnd, line.end - line.valueEnd);
+    }
+    // Empty values are dropped, like when writing a file from scratch
+  }
+
+  private void appendNewKeys(StringBuilder builder, SettingSection section,
+          Set<String> existingKeys)
+  {
+    Set<String> sortedKeySet = new TreeSet<>(section.getKeys());
+    sortedKeySet.removeAll(existingKeys);
+
+    for (String key : sortedKeySet)
+    {
+      String value = section.getValueAsString(key);
+      if (value != null && !value.isEmpty())
+      {
+        appendLineBreakIfNeeded(builder);
+        builder.append(key).append(" = ").append(value).append(mLineSeparator);
+      }
+    }
+  }
+
+  private void appendLineBreakIfNeeded(StringBuilder builder)
+  {
+    if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '\n')
+      builder.append(mLineSeparator);
+  }
+
+  private boolean isSameValue(Line line, String value)
+  {
+    if (value.length() != line.valueEnd - line.valueStart)
+      return false;
+
+    for (int i = 0; i < value.length(); i++)
+    {
+      if (mBuffer[line.valueStart + i] != value.charAt(i))
+        return false;
+    }
+    return true;
+  }
+
+  private static String findLineSeparator(char[] buffer, int length)
+  {
+    for (int i = 0; i < length; i++)
+    {
+      if (buffer[i] == '\n')
+        return i > 0 && buffer[i - 1] == '\r' ? "\r\n" : "\n";
+    }
+    return "\n";
+  }
+}
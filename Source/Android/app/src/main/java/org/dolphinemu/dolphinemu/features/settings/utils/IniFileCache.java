@@ -0,0 +1,80 @@
+package org.dolphinemu.dolphinemu.features.settings.utils;
+
+import android.util.LruCache;
+
+import java.io.File;
+
+/**
+ * Keeps the .ini files that were read recently, parsed, for the whole process, so that launching
+ * a game or opening the settings again doesn't read and parse files that haven't changed.
+ *
+ * Entries are keyed by path and checked against the file's modification time and size, which
+ * catches files written by native code or by hand. Files written by SettingsFile, including the
+ * ones it has native code write, are invalidated right away, since their modification time might
+ * not change within the same second.
+ */
+final class IniFileCache
+{
+  private static final int MAX_SIZE_CHARS = 256 * 1024;
+
+  private static final class Entry
+  {
+    final long lastModified;
+    final long length;
+    final IniDocument document;
+
+    Entry(long lastModified, long length, IniDocument document)
+    {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.document = document;
+    }
+  }
+
+  private static final LruCache<String, Entry> cache = new LruCache<String, Entry>(MAX_SIZE_CHARS)
+  {
+    @Override
+    protected int sizeOf(String path, Entry entry)
+    {
+      return Math.max(entry.document.getBuffer().length, 1);
+    }
+  };
+
+  private IniFileCache()
+  {
+  }
+
+  /**
+   * @return A copy of the cached document for the file, or null if the file isn't cached or
+   * has changed since it was read. Changing the copy doesn't change the cached document.
+   */
+  static IniDocument get(File file)
+  {
+    Entry entry = cache.get(file.getPath());
+    if (entry == null)
+      return null;
+
+    if (entry.lastModified != file.lastModified() || entry.length != file.length())
+    {
+      cache.remove(file.getPath());
+      return null;
+    }
+
+    return new IniDocument(entry.document);
+  }
+
+  /**
+   * @param lastModified The modification time of the file from before it was read.
+   * @param length       The size of the file from before it was read.
+   * @param document     The document, which must not be changed afterwards.
+   */
+  static void put(File file, long lastModified, long length, IniDocument document)
+  {
+    cache.put(file.getPath(), new Entry(lastModified, length, document));
+  }
+
+  static void invalidate(File file)
+  {
+    cache.remove(file.getPath());
+  }
+}
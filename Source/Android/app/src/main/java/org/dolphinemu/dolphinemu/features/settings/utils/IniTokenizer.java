@@ -0,0 +1,323 @@
+package org.dolphinemu.dolphinemu.features.settings.utils;
+
+/**
+ * Splits the contents of an .ini file into section headers and key/value pairs in a single pass
+ * over the characters, and works out whether each value is an integer, a float or something else
+ * without parsing it speculatively, so that reading a file never throws. Values are only
+ * classified when asked, so that values nobody looks at are never parsed.
+ *
+ * Keys and values are split at the first '=', so values may contain '=' themselves. Blank lines
+ * and lines starting with '#' are skipped, like the native ini parser does.
+ */
+final class IniTokenizer
+{
+  enum Token
+  {
+    /**
+     * A section header, like "[Core]". See getSectionName.
+     */
+    SECTION,
+
+    /**
+     * A key and a value, which may be empty. See getKey, getValue and getValueType.
+     */
+    SETTING,
+
+    /**
+     * A line that is neither of the above. See getLine.
+     */
+    INVALID
+  }
+
+  enum ValueType
+  {
+    INT, FLOAT, STRING
+  }
+
+  private final char[] mBuffer;
+  private final int mLength;
+  private int mPosition = 0;
+
+  // The line that was tokenized last, with surrounding whitespace and the line break
+  private int mRawLineStart;
+  private int mRawLineEnd;
+
+  // The line that was tokenized last, without surrounding whitespace
+  private int mLineStart;
+  private int mLineEnd;
+
+  private int mSeparator;
+  private int mValueStart;
+  private ValueType mValueType;
+  private int mIntValue;
+
+  IniTokenizer(char[] buffer, int length)
+  {
+    mBuffer = buffer;
+    mLength = length;
+  }
+
+  /**
+   * Creates a tokenizer that is positioned on a single value, like one found earlier with
+   * getValueStart and getValueEnd, so that it can be classified and parsed.
+   */
+  static IniTokenizer forValue(char[] buffer, int start, int end)
+  {
+    IniTokenizer tokenizer = new IniTokenizer(buffer, end);
+    tokenizer.mPosition = end;
+    tokenizer.mLineStart = start;
+    tokenizer.mSeparator = start;
+    tokenizer.mValueStart = start;
+    tokenizer.mLineEnd = end;
+    return tokenizer;
+  }
+
+  /**
+   * Moves on to the next line that isn't blank or a comment.
+   *
+   * @return The kind of line that was found, or null at the end of the file.
+   */
+  Token next()
+  {
+    while (mPosition < mLength)
+    {
+      int lineStart = mPosition;
+      int lineEnd = lineStart;
+      while (lineEnd < mLength && mBuffer[lineEnd] != '\n' && mBuffer[lineEnd] != '\r')
+      {
+        lineEnd++;
+      }
+
+      mPosition = lineEnd;
+      if (mPosition < mLength && mBuffer[mPosition] == '\r')
+        mPosition++;
+      if (mPosition < mLength && mBuffer[mPosition] == '\n')
+        mPosition++;
+
+      mRawLineStart = lineStart;
+      mRawLineEnd = mPosition;
+      mLineStart = skipWhitespace(lineStart, lineEnd);
+      mLineEnd = skipTrailingWhitespace(mLineStart, lineEnd);
+      if (mLineStart == mLineEnd || mBuffer[mLineStart] == '#')
+        continue;
+
+      return tokenizeLine();
+    }
+
+    return null;
+  }
+
+  private Token tokenizeLine()
+  {
+    if (mBuffer[mLineStart] == '[' && mBuffer[mLineEnd - 1] == ']' && mLineEnd - mLineStart >= 2)
+      return Token.SECTION;
+
+    mSeparator = mLineStart;
+    while (mSeparator < mLineEnd && mBuffer[mSeparator] != '=')
+    {
+      mSeparator++;
+    }
+
+    // Lines without a key can't be represented by a setting
+    if (mSeparator == mLineEnd || skipTrailingWhitespace(mLineStart, mSeparator) == mLineStart)
+      return Token.INVALID;
+
+    mValueStart = skipWhitespace(mSeparator + 1, mLineEnd);
+    mValueType = null;
+    return Token.SETTING;
+  }
+
+  /**
+   * @return Where the line starts in the buffer, including leading whitespace.
+   */
+  int getRawLineStart()
+  {
+    return mRawLineStart;
+  }
+
+  /**
+   * @return Where the line ends in the buffer, exclusive, including trailing whitespace and the
+   * line break.
+   */
+  int getRawLineEnd()
+  {
+    return mRawLineEnd;
+  }
+
+  String getLine()
+  {
+    return new String(mBuffer, mLineStart, mLineEnd - mLineStart);
+  }
+
+  String getSectionName()
+  {
+    return new String(mBuffer, mLineStart + 1, mLineEnd - mLineStart - 2);
+  }
+
+  String getKey()
+  {
+    int keyEnd = skipTrailingWhitespace(mLineStart, mSeparator);
+    return new String(mBuffer, mLineStart, keyEnd - mLineStart);
+  }
+
+  String getValue()
+  {
+    return new String(mBuffer, mValueStart, mLineEnd - mValueStart);
+  }
+
+  /**
+   * @return Where the value starts in the buffer.
+   */
+  int getValueStart()
+  {
+    return mValueStart;
+  }
+
+  /**
+   * @return Where the value ends in the buffer, exclusive.
+   */
+  int getValueEnd()
+  {
+    return mLineEnd;
+  }
+
+  ValueType getValueType()
+  {
+    if (mValueType == null)
+    {
+      mValueType = mValueStart == mLineEnd ? ValueType.STRING :
+              classifyValue(mValueStart, mLineEnd);
+    }
+    return mValueType;
+  }
+
+  /**
+   * Only valid if the value type is INT.
+   */
+  int getIntValue()
+  {
+    getValueType();
+    return mIntValue;
+  }
+
+  /**
+   * Only valid if the value type is FLOAT.
+   */
+  float getFloatValue()
+  {
+    // Can't throw, since classifyValue has already checked the syntax
+    return Float.parseFloat(getValue());
+  }
+
+  /**
+   * Accepts what Integer.valueOf accepts as INT, and otherwise the decimal numbers, NaN and
+   * Infinity that Float.valueOf accepts as FLOAT.
+   */
+  private ValueType classifyValue(int start, int end)
+  {
+    int position = start;
+    boolean isNegative = false;
+    if (mBuffer[position] == '+' || mBuffer[position] == '-')
+    {
+      isNegative = mBuffer[position] == '-';
+      position++;
+    }
+
+    // Integer
+    long value = 0;
+    int digitsStart = position;
+    while (position < end && isDigit(mBuffer[position]) && value <= Integer.MAX_VALUE + 1L)
+    {
+      value = value * 10 + (mBuffer[position] - '0');
+      position++;
+    }
+    if (position == end && position > digitsStart)
+    {
+      long signedValue = isNegative ? -value : value;
+      if (signedValue >= Integer.MIN_VALUE && signedValue <= Integer.MAX_VALUE)
+      {
+        mIntValue = (int) signedValue;
+        return ValueType.INT;
+      }
+    }
+
+    // Float
+    position = digitsStart;
+    if (matches(position, end, "NaN") || matches(position, end, "Infinity"))
+      return ValueType.FLOAT;
+
+    int integerDigits = countDigits(position, end);
+    position += integerDigits;
+    int fractionDigits = 0;
+    if (position < end && mBuffer[position] == '.')
+    {
+      position++;
+      fractionDigits = countDigits(position, end);
+      position += fractionDigits;
+    }
+    if (integerDigits == 0 && fractionDigits == 0)
+      return ValueType.STRING;
+
+    if (position < end && (mBuffer[position] == 'e' || mBuffer[position] == 'E'))
+    {
+      position++;
+      if (position < end && (mBuffer[position] == '+' || mBuffer[position] == '-'))
+        position++;
+      int exponentDigits = countDigits(position, end);
+      if (exponentDigits == 0)
+        return ValueType.STRING;
+      position += exponentDigits;
+    }
+
+    if (position < end && "fFdD".indexOf(mBuffer[position]) >= 0)
+      position++;
+
+    return position == end ? ValueType.FLOAT : ValueType.STRING;
+  }
+
+  private boolean matches(int start, int end, String word)
+  {
+    if (end - start != word.length())
+      return false;
+
+    for (int i = 0; i < word.length(); i++)
+    {
+      if (mBuffer[start + i] != word.charAt(i))
+        return false;
+    }
+    return true;
+  }
+
+  private int countDigits(int start, int end)
+  {
+    int position = start;
+    while (position < end && isDigit(mBuffer[position]))
+    {
+      position++;
+    }
+    return position - start;
+  }
+
+  private static boolean isDigit(char c)
+  {
+    return c >= '0' && c <= '9';
+  }
+
+  private int skipWhitespace(int start, int end)
+  {
+    while (start < end && mBuffer[start] <= ' ')
+    {
+      start++;
+    }
+    return start;
+  }
+
+  private int skipTrailingWhitespace(int start, int end)
+  {
+    while (end > start && mBuffer[end - 1] <= ' ')
+    {
+      end--;
+    }
+    return end;
+  }
+}
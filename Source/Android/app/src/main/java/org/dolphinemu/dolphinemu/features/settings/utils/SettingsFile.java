@@ -2,6 +2,7 @@ package org.dolphinemu.dolphinemu.features.settings.utils;
 
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
+import android.util.AtomicFile;
 
 import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.features.settings.model.BooleanSetting;
@@ -16,13 +17,19 @@ import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.utils.BiMap;
 import org.dolphinemu.dolphinemu.utils.Log;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.TreeMap;
@@ -297,31 +304,48 @@ public final class SettingsFile
   static HashMap<String, SettingSection> readFile(final File ini, boolean isCustomGame,
           SettingsActivityView view)
   {
-    HashMap<String, SettingSection> sections = new Settings.SettingsSectionMap();
+    return sectionsFromDocument(readDocument(ini, view), isCustomGame);
+  }
 
-    BufferedReader reader = null;
+  /**
+   * Reads a given .ini file from disk, keeping all of its lines as they are. If unsuccessful,
+   * outputs an error telling why it failed and returns an empty document.
+   *
+   * @param ini  The ini file to read.
+   * @param view The current view.
+   */
+  private static IniDocument readDocument(final File ini, SettingsActivityView view)
+  {
+    IniDocument cachedDocument = IniFileCache.get(ini);
+    if (cachedDocument != null)
+      return cachedDocument;
+
+    // Taken before reading, so that changes made while reading make the cache entry outdated
+    long lastModified = ini.lastModified();
+    long fileLength = ini.length();
+
+    Reader reader = null;
 
     try
     {
-      reader = new BufferedReader(new FileReader(ini));
-
-      SettingSection current = null;
-      for (String line; (line = reader.readLine()) != null; )
+      // Goes through AtomicFile so that a write that was cut short is rolled back first
+      reader = new InputStreamReader(new AtomicFile(ini).openRead(), StandardCharsets.UTF_8);
+
+      // Read the whole file at once, since the tokenizer works on a single buffer. A UTF-8 file
+      // never has more chars than bytes, so the spare char is only filled if the file has grown
+      // since its length was taken, and reaching the end doesn't need a bigger buffer.
+      char[] buffer = new char[(int) fileLength + 1];
+      int length = 0;
+      for (int read; (read = reader.read(buffer, length, buffer.length - length)) != -1; )
       {
-        if (line.startsWith("[") && line.endsWith("]"))
-        {
-          current = sectionFromLine(line, isCustomGame);
-          sections.put(current.getName(), current);
-        }
-        else if ((current != null))
-        {
-          Setting setting = settingFromLine(current, line);
-          if (setting != null)
-          {
-            current.putSetting(setting);
-          }
-        }
+        length += read;
+        if (length == buffer.length)
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
       }
+
+      IniDocument document = new IniDocument(buffer, length);
+      IniFileCache.put(ini, lastModified, fileLength, document);
+      return new IniDocument(document);
     }
     catch (FileNotFoundException e)
     {
@@ -350,13 +374,64 @@ public final class SettingsFile
       }
     }
 
+    return new IniDocument(new char[0], 0);
+  }
+
+  private static HashMap<String, SettingSection> sectionsFromDocument(IniDocument document,
+          boolean isCustomGame)
+  {
+    HashMap<String, SettingSection> sections = new Settings.SettingsSectionMap();
+
+    char[] buffer = document.getBuffer();
+    SettingSection current = null;
+    for (IniDocument.Line line : document.getLines())
+    {
+      if (line.token == IniTokenizer.Token.SECTION)
+      {
+        current = sectionFromName(line.section, isCustomGame);
+        sections.put(current.getName(), current);
+      }
+      else if (current != null)
+      {
+        // The type of a value is only worked out once something asks for it
+        if (line.token == IniTokenizer.Token.SETTING)
+          current.putRawValue(line.key, buffer, line.valueStart, line.valueEnd);
+        else if (line.token == IniTokenizer.Token.INVALID)
+          Log.warning("Skipping invalid config line \"" +
+                  new String(buffer, line.start, line.end - line.start).trim() + "\"");
+      }
+    }
+
     return sections;
   }
 
   public static HashMap<String, SettingSection> readFile(final String fileName,
           SettingsActivityView view)
   {
-    HashMap<String, SettingSection> sections = readFile(getSettingsFile(fileName), false, view);
+    return readSections(fileName, readDocument(fileName, view));
+  }
+
+  /**
+   * Reads a given .ini file from the config directory, keeping all of its lines as they are, so
+   * that it can be passed to saveFile later.
+   *
+   * @param fileName The name of the file without a path or extension.
+   * @param view     The current view.
+   */
+  public static IniDocument readDocument(final String fileName, SettingsActivityView view)
+  {
+    return readDocument(getSettingsFile(fileName), view);
+  }
+
+  /**
+   * @param fileName The name of the file the document was read from.
+   * @param document The document, as returned by readDocument.
+   * @return The settings in the document.
+   */
+  public static HashMap<String, SettingSection> readSections(final String fileName,
+          IniDocument document)
+  {
+    HashMap<String, SettingSection> sections = sectionsFromDocument(document, false);
 
     if (fileName.equals(SettingsFile.FILE_NAME_DOLPHIN))
     {
@@ -406,45 +481,78 @@ public final class SettingsFile
    * @param fileName The target filename without a path or extension.
    * @param sections The HashMap containing the Settings we want to serialize.
    * @param view     The current view.
+   * @return true if the file was written.
    */
-  public static void saveFile(final String fileName, TreeMap<String, SettingSection> sections,
+  public static boolean saveFile(final String fileName, TreeMap<String, SettingSection> sections,
           SettingsActivityView view)
   {
-    File ini = getSettingsFile(fileName);
+    return saveFile(fileName, sections, null, view);
+  }
 
-    PrintWriter writer = null;
-    try
+  /**
+   * Saves a Settings HashMap to a given .ini file on disk. If a document is passed, only the
+   * values that have changed are replaced in it, and everything else in the file is kept as it
+   * is. If that doesn't change anything, the file isn't written at all. If unsuccessful, outputs
+   * an error telling why it failed.
+   *
+   * @param fileName The target filename without a path or extension.
+   * @param sections The HashMap containing the Settings we want to serialize.
+   * @param document The file as it was read with readDocument, or null to write a new file.
+   *                 It is updated to match the file once the file has been written.
+   * @param view     The current view.
+   * @return true if the file now contains the settings.
+   */
+  public static boolean saveFile(final String fileName, TreeMap<String, SettingSection> sections,
+          IniDocument document, SettingsActivityView view)
+  {
+    if (document == null)
     {
-      writer = new PrintWriter(ini, "UTF-8");
-
-      Set<String> keySet = sections.keySet();
-      Set<String> sortedKeySet = new TreeSet<>(keySet);
-
-      for (String key : sortedKeySet)
+      StringWriter content = new StringWriter();
+      PrintWriter writer = new PrintWriter(content);
+      for (SettingSection section : sections.values())
       {
-        SettingSection section = sections.get(key);
         writeSection(writer, section);
       }
+      return writeFile(fileName, content.getBuffer(), view);
     }
-    catch (FileNotFoundException e)
+
+    StringBuilder content = document.render(sections);
+    if (document.isUnchanged(content))
+      return true;
+
+    if (!writeFile(fileName, content, view))
+      return false;
+
+    char[] buffer = new char[content.length()];
+    content.getChars(0, buffer.length, buffer, 0);
+    document.setContent(buffer, buffer.length);
+    return true;
+  }
+
+  private static boolean writeFile(final String fileName, CharSequence content,
+          SettingsActivityView view)
+  {
+    File ini = getSettingsFile(fileName);
+    AtomicFile iniFile = new AtomicFile(ini);
+    IniFileCache.invalidate(ini);
+
+    FileOutputStream stream = null;
+    try
     {
-      Log.error("[SettingsFile] File not found: " + fileName + ".ini: " + e.getMessage());
-      if (view != null)
-        view.showToastMessage("Error saving " + fileName + ".ini: " + e.getMessage());
+      stream = iniFile.startWrite();
+      Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+      writer.append(content);
+      writer.flush();
+      iniFile.finishWrite(stream);
+      return true;
     }
-    catch (UnsupportedEncodingException e)
+    catch (IOException e)
     {
-      Log.error("[SettingsFile] Bad encoding; please file a bug report: " + fileName + ".ini: " +
-              e.getMessage());
+      Log.error("[SettingsFile] Error saving " + fileName + ".ini: " + e.getMessage());
       if (view != null)
         view.showToastMessage("Error saving " + fileName + ".ini: " + e.getMessage());
-    }
-    finally
-    {
-      if (writer != null)
-      {
-        writer.close();
-      }
+      iniFile.failWrite(stream);
+      return false;
     }
   }
 
@@ -457,8 +565,7 @@ public final class SettingsFile
     for (String sectionKey : sortedSections)
     {
       SettingSection section = sections.get(sectionKey);
-      HashMap<String, Setting> settings = section.getSettings();
-      Set<String> sortedKeySet = new TreeSet<>(settings.keySet());
+      Set<String> sortedKeySet = new TreeSet<>(section.getKeys());
 
       // Profile options(wii extension) are not saved, only used to properly display values
       if (sectionKey.contains(Settings.SECTION_PROFILE))
@@ -468,24 +575,49 @@ public final class SettingsFile
 
       for (String settingKey : sortedKeySet)
       {
-        Setting setting = settings.get(settingKey);
+        String value = section.getValueAsString(settingKey);
         // Special case. Extension gets saved into a controller profile
         if (settingKey.contains(SettingsFile.KEY_WIIMOTE_EXTENSION))
         {
-          String padId =
-                  setting.getKey()
-                          .substring(setting.getKey().length() - 1, setting.getKey().length());
-          saveCustomWiimoteSetting(gameId, KEY_WIIMOTE_EXTENSION, setting.getValueAsString(),
-                  padId);
+          String padId = settingKey.substring(settingKey.length() - 1, settingKey.length());
+          saveCustomWiimoteSetting(gameId, KEY_WIIMOTE_EXTENSION, value, padId);
         }
         else
         {
           NativeLibrary.SetUserSetting(gameId, mapSectionNameFromIni(section.getName()),
-                  setting.getKey(), setting.getValueAsString());
+                  settingKey, value);
         }
       }
     }
+    saveGameIniFile(gameId);
+  }
+
+  /**
+   * Writes the custom game settings that were set with NativeLibrary.SetUserSetting to disk.
+   * Native code that writes settings files has to be called through this class, so that the
+   * parsed copy of the file that IniFileCache keeps is dropped.
+   *
+   * @param gameId The game whose settings file to write.
+   */
+  public static void saveGameIniFile(final String gameId)
+  {
     NativeLibrary.SaveGameIniFile(gameId);
+    IniFileCache.invalidate(getCustomGameSettingsFile(gameId));
+  }
+
+  /**
+   * Sets a value in one of the files in the Config directory through native code.
+   *
+   * @param fileName The target filename without a path or extension.
+   * @param section  The section the key is in.
+   * @param key      The key to set.
+   * @param value    The value to set it to.
+   */
+  public static void setConfig(final String fileName, final String section, final String key,
+          final String value)
+  {
+    NativeLibrary.SetConfig(fileName + ".ini", section, key, value);
+    IniFileCache.invalidate(getSettingsFile(fileName));
   }
 
   /**
@@ -518,6 +650,7 @@ public final class SettingsFile
     }
 
     NativeLibrary.SetProfileSetting(profile, Settings.SECTION_PROFILE, key, value);
+    IniFileCache.invalidate(wiiProfile);
 
     // Enable the profile
     NativeLibrary.SetUserSetting(gameId, Settings.SECTION_CONTROLS,
@@ -583,9 +716,8 @@ public final class SettingsFile
     return new File(wiiConfigPath);
   }
 
-  private static SettingSection sectionFromLine(String line, boolean isCustomGame)
+  private static SettingSection sectionFromName(String sectionName, boolean isCustomGame)
   {
-    String sectionName = line.substring(1, line.length() - 1);
     if (isCustomGame)
     {
       sectionName = mapSectionNameToIni(sectionName);
@@ -613,8 +745,9 @@ public final class SettingsFile
 
   public static void firstAnalyticsAdd(boolean enabled)
   {
+    IniDocument document = readDocument(SettingsFile.FILE_NAME_DOLPHIN, null);
     HashMap<String, SettingSection> dolphinSections =
-            readFile(SettingsFile.FILE_NAME_DOLPHIN, null);
+            readSections(SettingsFile.FILE_NAME_DOLPHIN, document);
     SettingSection analyticsSection = dolphinSections.get(Settings.SECTION_ANALYTICS);
 
     Setting analyticsEnabled = new StringSetting(KEY_ANALYTICS_ENABLED, Settings.SECTION_ANALYTICS,
@@ -628,58 +761,44 @@ public final class SettingsFile
     dolphinSections.put(Settings.SECTION_ANALYTICS, analyticsSection);
 
     TreeMap<String, SettingSection> saveSection = new TreeMap<>(dolphinSections);
-    saveFile(SettingsFile.FILE_NAME_DOLPHIN, saveSection, null);
+    saveFile(SettingsFile.FILE_NAME_DOLPHIN, saveSection, document, null);
   }
 
   /**
-   * For a line of text, determines what type of data is being represented, and returns
-   * a Setting object containing this data.
+   * Determines what type of data a value read from a file represents, and returns a Setting
+   * object containing this data.
    *
-   * @param current The section currently being parsed by the consuming method.
-   * @param line    The line of text being parsed.
-   * @return A typed Setting containing the key/value contained in the line.
+   * @param key     Everything to the left of the = in the line the value was read from.
+   * @param section The name of the section the value was read from.
+   * @param buffer  The contents of the file the value was read from.
+   * @param start   Where the value starts in the buffer.
+   * @param end     Where the value ends in the buffer, exclusive.
+   * @return A typed Setting containing the key/value.
    */
-  private static Setting settingFromLine(SettingSection current, String line)
+  public static Setting settingFromValue(String key, String section, char[] buffer, int start,
+          int end)
   {
-    String[] splitLine = line.split("=");
+    IniTokenizer tokenizer = IniTokenizer.forValue(buffer, start, end);
 
-    if (splitLine.length != 2)
+    switch (tokenizer.getValueType())
     {
-      Log.warning("Skipping invalid config line \"" + line + "\"");
-      return null;
-    }
-
-    String key = splitLine[0].trim();
-    String value = splitLine[1].trim();
+      case INT:
+        return new IntSetting(key, section, tokenizer.getIntValue());
 
-    try
-    {
-      int valueAsInt = Integer.valueOf(value);
+      case FLOAT:
+        return new FloatSetting(key, section, tokenizer.getFloatValue());
 
-      return new IntSetting(key, current.getName(), valueAsInt);
-    }
-    catch (NumberFormatException ex)
-    {
-    }
-
-    try
-    {
-      float valueAsFloat = Float.valueOf(value);
-
-      return new FloatSetting(key, current.getName(), valueAsFloat);
-    }
-    catch (NumberFormatException ex)
-    {
-    }
-
-    switch (value)
-    {
-      case "True":
-        return new BooleanSetting(key, current.getName(), true);
-      case "False":
-        return new BooleanSetting(key, current.getName(), false);
       default:
-        return new StringSetting(key, current.getName(), value);
+        String value = tokenizer.getValue();
+        switch (value)
+        {
+          case "True":
+            return new BooleanSetting(key, section, true);
+          case "False":
+            return new BooleanSetting(key, section, false);
+          default:
+            return new StringSetting(key, section, value);
+        }
     }
   }
 
@@ -695,18 +814,15 @@ public final class SettingsFile
     String header = sectionAsString(section);
     writer.println(header);
 
-    // Write this section's values.
-    HashMap<String, Setting> settings = section.getSettings();
-    Set<String> keySet = settings.keySet();
-    Set<String> sortedKeySet = new TreeSet<>(keySet);
+    // Write this section's values. Values nothing has asked for are written as they were read.
+    Set<String> sortedKeySet = new TreeSet<>(section.getKeys());
 
     for (String key : sortedKeySet)
     {
-      Setting setting = settings.get(key);
-      String valueAsString = setting.getValueAsString();
+      String valueAsString = section.getValueAsString(key);
       if (!TextUtils.isEmpty(valueAsString))
       {
-        writer.println(setting.getKey() + " = " + valueAsString);
+        writer.println(key + " = " + valueAsString);
       }
     }
   }
@@ -20,6 +20,7 @@ import org.dolphinemu.dolphinemu.NativeLibrary;
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.activities.EmulationActivity;
 import org.dolphinemu.dolphinemu.overlay.InputOverlay;
+import org.dolphinemu.dolphinemu.services.PlaySessionStore;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization.DirectoryInitializationState;
 import org.dolphinemu.dolphinemu.utils.DirectoryStateReceiver;
@@ -267,6 +268,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
     private boolean mRunWhenSurfaceIsValid;
     private boolean loadPreviousTemporaryState;
     private final String temporaryStatePath;
+    private PlaySessionStore.Session mPlaySession;
 
     EmulationState(String[] gamePaths, String temporaryStatePath)
     {
@@ -302,6 +304,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
         Log.debug("[EmulationFragment] Stopping emulation.");
         state = State.STOPPED;
         NativeLibrary.StopEmulation();
+        endPlaySession();
       }
       else
       {
@@ -319,6 +322,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
         // Release the surface before pausing, since emulation has to be running for that.
         NativeLibrary.SurfaceDestroyed();
         NativeLibrary.PauseEmulation();
+        pausePlaySession();
       }
       else
       {
@@ -385,6 +389,7 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
         {
           NativeLibrary.SurfaceDestroyed();
           state = State.PAUSED;
+          pausePlaySession();
         }
         else if (state == State.PAUSED)
         {
@@ -418,12 +423,16 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
         }, "NativeEmulation");
         mEmulationThread.start();
 
+        // Continuing from the temporary state isn't a new launch of the game
+        mPlaySession = PlaySessionStore.startSession(mGamePaths[0], !loadPreviousTemporaryState);
+        mPlaySession.resume();
       }
       else if (state == State.PAUSED)
       {
         Log.debug("[EmulationFragment] Resuming emulation.");
         NativeLibrary.SurfaceChanged(mSurface);
         NativeLibrary.UnPauseEmulation();
+        resumePlaySession();
       }
       else
       {
@@ -431,6 +440,26 @@ public final class EmulationFragment extends Fragment implements SurfaceHolder.C
       }
       state = State.RUNNING;
     }
+
+    private void resumePlaySession()
+    {
+      // A recreated activity can resume emulation that was started by an earlier one
+      if (mPlaySession == null)
+        mPlaySession = PlaySessionStore.startSession(mGamePaths[0], false);
+      mPlaySession.resume();
+    }
+
+    private void pausePlaySession()
+    {
+      if (mPlaySession != null)
+        mPlaySession.pause();
+    }
+
+    private void endPlaySession()
+    {
+      pausePlaySession();
+      mPlaySession = null;
+    }
   }
 
   public void saveTemporaryState()
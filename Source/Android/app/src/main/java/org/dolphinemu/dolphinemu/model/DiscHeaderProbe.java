@@ -0,0 +1,170 @@
+package org.dolphinemu.dolphinemu.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Looks at the first bytes of a file to tell whether it can be a GameCube or Wii game, without
+ * going through the native disc code. Files that are clearly something else can then be skipped
+ * before they reach the much more expensive native parser.
+ *
+ * An instance reuses its read buffer and result fields between files, so probing doesn't allocate
+ * anything beyond the file handle, and an instance must not be shared between threads.
+ * Read errors never cause a file to be rejected; the native code gets the final say on those.
+ */
+public final class DiscHeaderProbe
+{
+  public static final int RESULT_NOT_A_GAME = 0;
+  public static final int RESULT_GAME = 1;
+  // The file looks like a game, but its ID can't be read without decompressing it
+  public static final int RESULT_GAME_WITHOUT_ID = 2;
+  public static final int RESULT_READ_ERROR = 3;
+
+  private static final int GAMECUBE_MAGIC = 0xC2339F3D;
+  private static final int GAMECUBE_MAGIC_OFFSET = 0x1C;
+  private static final int WII_MAGIC = 0x5D1C9EA3;
+  private static final int WII_MAGIC_OFFSET = 0x18;
+  private static final int TGC_MAGIC = 0xAE0F38A2;
+  private static final int GCZ_MAGIC = 0xB10BC001;  // Stored little endian
+  private static final int WBFS_MAGIC = 0x57424653;  // "WBFS"
+  private static final int CISO_MAGIC = 0x4349534F;  // "CISO"
+  private static final int CISO_HEADER_SIZE = 0x8000;
+  private static final int WAD_HEADER_SIZE = 0x20;
+  private static final int WAD_TYPE_INSTALLABLE = 0x49730000;  // "Is\0\0"
+  private static final int WAD_TYPE_BOOT = 0x69620000;  // "ib\0\0"
+  private static final int ELF_MAGIC = 0x7F454C46;  // "\x7FELF"
+  private static final int DOL_HEADER_SIZE = 0x100;
+
+  private static final int GAME_ID_LENGTH = 6;
+  private static final int HEADER_READ_SIZE = 0x20;
+
+  private final ByteBuffer mBuffer =
+          ByteBuffer.allocateDirect(HEADER_READ_SIZE).order(ByteOrder.BIG_ENDIAN);
+  private final byte[] mGameId = new byte[GAME_ID_LENGTH];
+  private int mDiscNumber;
+  private int mRevision;
+
+  /**
+   * @return One of the RESULT_ constants. If it is RESULT_GAME, the ID, disc number
+   * and revision of the game can be compared with isSameDisc until the next call.
+   */
+  public int probe(File file)
+  {
+    try (FileInputStream stream = new FileInputStream(file))
+    {
+      return probe(stream.getChannel(), file.getName());
+    }
+    catch (IOException e)
+    {
+      return RESULT_READ_ERROR;
+    }
+  }
+
+  private int probe(FileChannel channel, String fileName) throws IOException
+  {
+    long size = channel.size();
+    if (!read(channel, 0))
+    {
+      // Too small to have any of the headers below
+      return RESULT_NOT_A_GAME;
+    }
+
+    int magic = mBuffer.getInt(0);
+
+    if (readDiscHeader())
+      return RESULT_GAME;
+
+    switch (magic)
+    {
+      case WBFS_MAGIC:
+        // The first disc's header follows the first HD sector
+        int hdSectorShift = mBuffer.get(8) & 0xFF;
+        if (hdSectorShift >= 31 || !read(channel, 1L << hdSectorShift))
+          return RESULT_NOT_A_GAME;
+        return readDiscHeader() ? RESULT_GAME : RESULT_NOT_A_GAME;
+
+      case CISO_MAGIC:
+        // When the first block is present, it is stored right after the header.
+        // Without it, there is no disc header to check.
+        boolean firstBlockPresent = mBuffer.get(8) != 0;
+        if (!firstBlockPresent || !read(channel, CISO_HEADER_SIZE))
+          return RESULT_GAME_WITHOUT_ID;
+        return readDiscHeader() ? RESULT_GAME : RESULT_NOT_A_GAME;
+
+      case TGC_MAGIC:
+      case ELF_MAGIC:
+        return RESULT_GAME_WITHOUT_ID;
+    }
+
+    if (Integer.reverseBytes(magic) == GCZ_MAGIC)
+      return RESULT_GAME_WITHOUT_ID;
+
+    int wadType = mBuffer.getInt(4);
+    if (magic == WAD_HEADER_SIZE && (wadType == WAD_TYPE_INSTALLABLE || wadType == WAD_TYPE_BOOT))
+      return RESULT_GAME_WITHOUT_ID;
+
+    // DOL files have no magic word, so the extension is all there is to go on
+    if (endsWithIgnoreCase(fileName, ".dol") && size >= DOL_HEADER_SIZE)
+      return RESULT_GAME_WITHOUT_ID;
+
+    return RESULT_NOT_A_GAME;
+  }
+
+  private boolean read(FileChannel channel, long position) throws IOException
+  {
+    mBuffer.clear();
+    while (mBuffer.hasRemaining())
+    {
+      if (channel.read(mBuffer, position + mBuffer.position()) < 0)
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether the buffer holds the start of a GameCube or Wii disc, and if so, stores its ID.
+   */
+  private boolean readDiscHeader()
+  {
+    if (mBuffer.getInt(GAMECUBE_MAGIC_OFFSET) != GAMECUBE_MAGIC &&
+            mBuffer.getInt(WII_MAGIC_OFFSET) != WII_MAGIC)
+    {
+      return false;
+    }
+
+    for (int i = 0; i < GAME_ID_LENGTH; i++)
+    {
+      mGameId[i] = mBuffer.get(i);
+    }
+    mDiscNumber = mBuffer.get(6) & 0xFF;
+    mRevision = mBuffer.get(7) & 0xFF;
+    return true;
+  }
+
+  /**
+   * Compares the last game that was probed with RESULT_GAME with the given one, without
+   * allocating anything.
+   */
+  public boolean isSameDisc(String gameId, int discNumber, int revision)
+  {
+    if (discNumber != mDiscNumber || revision != mRevision || gameId.length() != GAME_ID_LENGTH)
+      return false;
+
+    for (int i = 0; i < GAME_ID_LENGTH; i++)
+    {
+      if (gameId.charAt(i) != (mGameId[i] & 0xFF))
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean endsWithIgnoreCase(String string, String suffix)
+  {
+    return string.regionMatches(true, string.length() - suffix.length(), suffix, 0,
+            suffix.length());
+  }
+}
@@ -2,41 +2,142 @@ package org.dolphinemu.dolphinemu.model;
 
 import android.os.Environment;
 
-public class GameFile
+public class GameFile implements AutoCloseable
 {
   private long mPointer;  // Do not rename or move without editing the native code
-
-  private GameFile(long pointer)
+  private final NativeCleaner.Handle mCleanup;
+
+  // Metadata is copied out of the native object when the wrapper is created, so that
+  // sorting and displaying the game list doesn't need to call into native code.
+  private final int mPlatform;
+  private final String mTitle;
+  private final String mDescription;
+  private final String mCompany;
+  private final int mCountry;
+  private final int mRegion;
+  private final String mPath;
+  private final String mGameId;
+  private final String mGameTdbId;
+  private final int mDiscNumber;
+  private final int mRevision;
+
+  // Set when a game list snapshot gets built, and shown instead of the title if there is one
+  private volatile String mDatabaseTitle;
+
+  // Do not change the signature without editing the native code
+  private GameFile(long pointer, int platform, String title, String description, String company,
+          int country, int region, String path, String gameId, String gameTdbId, int discNumber,
+          int revision)
   {
     mPointer = pointer;
+    mCleanup = pointer == 0 ? null : NativeCleaner.register(this, pointer, GameFile::deletePointer);
+    mPlatform = platform;
+    mTitle = title;
+    mDescription = description;
+    mCompany = company;
+    mCountry = country;
+    mRegion = region;
+    mPath = path;
+    mGameId = gameId;
+    mGameTdbId = gameTdbId;
+    mDiscNumber = discNumber;
+    mRevision = revision;
+  }
+
+  /**
+   * Creates a game file that only has metadata, like the games read from a library snapshot
+   * file before the native game file cache has been loaded. Its banner getters return nothing.
+   */
+  static GameFile withoutNativeObject(int platform, String title, String description,
+          String company, int country, int region, String path, String gameId, String gameTdbId,
+          int discNumber, int revision)
+  {
+    return new GameFile(0, platform, title, description, company, country, region, path, gameId,
+            gameTdbId, discNumber, revision);
   }
 
   public native static GameFile parse(String path);
 
+  private static native void deletePointer(long pointer);
+
+  /**
+   * Frees the native game file now rather than when this object gets garbage collected.
+   * Only close objects that nothing else can be using, like the result of parse. The objects
+   * returned by GameFileCache.getAllGames are shared between game lists and must not be closed.
+   * The metadata getters keep working after this, and the banner getters return nothing.
+   */
   @Override
-  public native void finalize();
+  public void close()
+  {
+    mPointer = 0;
+    if (mCleanup != null)
+      mCleanup.clean();
+  }
+
+  public int getPlatform()
+  {
+    return mPlatform;
+  }
 
-  public native int getPlatform();
+  public String getTitle()
+  {
+    String databaseTitle = mDatabaseTitle;
+    return databaseTitle != null ? databaseTitle : mTitle;
+  }
 
-  public native String getTitle();
+  /**
+   * @param databaseTitle The title of the game in the title database, or null to show the title
+   *                      of the game itself.
+   */
+  public void setDatabaseTitle(String databaseTitle)
+  {
+    mDatabaseTitle = databaseTitle;
+  }
 
-  public native String getDescription();
+  public String getDescription()
+  {
+    return mDescription;
+  }
 
-  public native String getCompany();
+  public String getCompany()
+  {
+    return mCompany;
+  }
 
-  public native int getCountry();
+  public int getCountry()
+  {
+    return mCountry;
+  }
 
-  public native int getRegion();
+  public int getRegion()
+  {
+    return mRegion;
+  }
 
-  public native String getPath();
+  public String getPath()
+  {
+    return mPath;
+  }
 
-  public native String getGameId();
+  public String getGameId()
+  {
+    return mGameId;
+  }
 
-  public native String getGameTdbId();
+  public String getGameTdbId()
+  {
+    return mGameTdbId;
+  }
 
-  public native int getDiscNumber();
+  public int getDiscNumber()
+  {
+    return mDiscNumber;
+  }
 
-  public native int getRevision();
+  public int getRevision()
+  {
+    return mRevision;
+  }
 
   public native int[] getBanner();
 
@@ -2,28 +2,81 @@ package org.dolphinemu.dolphinemu.model;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-public class GameFileCache
+public class GameFileCache implements AutoCloseable
 {
   private static final String GAME_FOLDER_PATHS_PREFERENCE = "gameFolderPaths";
   private static final Set<String> EMPTY_SET = new HashSet<>();
+  private static final String FOLDER_FINGERPRINTS_FILE_NAME = "gamefolders.cache";
+
+  // Limits on how often a scan that finds new games hands out partial results
+  private static final int PROGRESS_BATCH_SIZE = 50;
+  private static final long PROGRESS_INTERVAL_MS = 100;
 
   private long mPointer;  // Do not rename or move without editing the native code
+  private final NativeCleaner.Handle mCleanup;
+
+  /**
+   * Receives updates while a scan adds newly discovered games to the cache one by one.
+   * Called on the scanning thread, which is the only thread that modifies the cache.
+   */
+  public interface ScanProgressListener
+  {
+    /**
+     * @param gamesParsed The number of new files that have been looked at so far.
+     * @param gamesTotal  The number of new files that this scan will look at.
+     */
+    void onScanProgress(int gamesParsed, int gamesTotal);
+  }
+
+  private final File mFolderFingerprintsFile;
+  private GameFolderFingerprints mFolderFingerprints;
+
+  // The native methods are synchronized, so a scan only holds the lock for one native call at a
+  // time. Between calls, it waits for these requests so that they don't queue up behind it.
+  private final Object mPriorityRequestLock = new Object();
+  private int mPriorityRequests = 0;
+
+  // The objects returned by the last getAllGames call. The next call hands them out again for
+  // games that haven't changed, so refreshing the game list doesn't create thousands of new ones.
+  private GameFile[] mGameFiles = new GameFile[0];
 
   public GameFileCache(String path)
   {
     mPointer = newGameFileCache(path);
+    mCleanup = NativeCleaner.register(this, mPointer, GameFileCache::deletePointer);
+    mFolderFingerprintsFile =
+            new File(new File(path).getParentFile(), FOLDER_FINGERPRINTS_FILE_NAME);
+    mFolderFingerprints = GameFolderFingerprints.empty(mFolderFingerprintsFile);
   }
 
   private static native long newGameFileCache(String path);
 
+  private static native void deletePointer(long pointer);
+
+  /**
+   * Frees the native cache now rather than when this object gets garbage collected.
+   * No other methods may be called afterwards.
+   */
   @Override
-  public native void finalize();
+  public synchronized void close()
+  {
+    mPointer = 0;
+    mGameFiles = new GameFile[0];
+    mCleanup.clean();
+  }
 
   public static void addGameFolder(String path, Context context)
   {
@@ -36,6 +89,12 @@ public class GameFileCache
     editor.apply();
   }
 
+  public static Set<String> getGameFolders(Context context)
+  {
+    SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+    return new HashSet<>(preferences.getStringSet(GAME_FOLDER_PATHS_PREFERENCE, EMPTY_SET));
+  }
+
   private void removeNonExistentGameFolders(Context context)
   {
     SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
@@ -62,34 +121,349 @@ public class GameFileCache
   /**
    * Scans through the file system and updates the cache to match.
    *
+   * Folders whose fingerprint matches the one recorded by the previous scan are known to contain
+   * the same games as before, so if no folder has changed, the folders aren't walked again. The
+   * metadata that lives outside the game files, like custom banners and covers, is still updated.
+   * Otherwise, only the files that aren't in the cache yet and are in a changed folder are
+   * looked at on disk.
+   *
+   * Files that aren't in the cache yet are added one at a time, and the listener (if any) is
+   * told about it in batches, so that the cache can be read while a long first scan is running.
+   *
    * @return true if the cache was modified
    */
-  public boolean scanLibrary(Context context)
+  public boolean scanLibrary(Context context, ScanProgressListener listener)
   {
     removeNonExistentGameFolders(context);
 
     SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
-    Set<String> folderPathsSet = preferences.getStringSet(GAME_FOLDER_PATHS_PREFERENCE, EMPTY_SET);
-    String[] folderPaths = folderPathsSet.toArray(new String[folderPathsSet.size()]);
+    Set<String> folderPaths = preferences.getStringSet(GAME_FOLDER_PATHS_PREFERENCE, EMPTY_SET);
+
+    List<String> gamePaths;
+    Set<String> cachedPaths;
+    GameFolderFingerprints newFingerprints =
+            GameFolderFingerprints.empty(mFolderFingerprintsFile);
+    try (GameFolderScanner scanner = new GameFolderScanner(folderPaths.size()))
+    {
+      List<GameFolderScanner.FolderListing> listings = scanner.listFolders(folderPaths);
+
+      boolean foldersChanged = !folderPaths.equals(mFolderFingerprints.getFolderPaths());
+      Set<String> changedFolderPaths = new HashSet<>();
+      for (GameFolderScanner.FolderListing listing : listings)
+      {
+        if (!listing.fingerprint.equals(mFolderFingerprints.get(listing.path)))
+          changedFolderPaths.add(listing.path);
+        newFingerprints.put(listing.path, listing.fingerprint);
+      }
+
+      if (!foldersChanged && changedFolderPaths.isEmpty())
+        return updateAdditionalMetadataAndSave();
+
+      cachedPaths = getCachedPaths();
+      gamePaths = scanner.findGamePaths(listings, cachedPaths, changedFolderPaths);
+      if (Thread.interrupted())
+        throw new InterruptedException();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
 
-    boolean cacheChanged = update(folderPaths);
+    boolean cacheChanged;
+    try
+    {
+      cacheChanged = addNewGames(gamePaths, cachedPaths, listener);
+    }
+    catch (InterruptedException e)
+    {
+      // Some games may have been added already, but since neither the cache nor the fingerprints
+      // get saved, the next scan will simply pick up where this one stopped
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    waitForPriorityRequests();
+    cacheChanged |= update(gamePaths.toArray(new String[gamePaths.size()]));
     cacheChanged |= updateAdditionalMetadata();
+    boolean cacheSaved = !cacheChanged || save();
+
+    // The fingerprints on disk must never be newer than the cache file they describe
+    mFolderFingerprints = newFingerprints;
+    if (cacheSaved)
+      mFolderFingerprints.save();
+
+    return cacheChanged;
+  }
+
+  private boolean updateAdditionalMetadataAndSave()
+  {
+    waitForPriorityRequests();
+    boolean cacheChanged = updateAdditionalMetadata();
     if (cacheChanged)
-    {
       save();
+    return cacheChanged;
+  }
+
+  private Map<String, GameFile> getCachedGamesByPath()
+  {
+    GameFile[] games = getAllGames();
+    Map<String, GameFile> cachedGames = new HashMap<>(games.length * 2);
+    for (GameFile game : games)
+    {
+      cachedGames.put(game.getPath(), game);
+    }
+    return cachedGames;
+  }
+
+  /**
+   * @return true if the file now holds another disc than the cached game, or isn't a game at all.
+   * Files whose ID can't be read are assumed to be unchanged, like before they were probed.
+   */
+  private static boolean isReplaced(DiscHeaderProbe probe, File file, GameFile cachedGame)
+  {
+    switch (probe.probe(file))
+    {
+      case DiscHeaderProbe.RESULT_GAME:
+        return !probe.isSameDisc(cachedGame.getGameId(), cachedGame.getDiscNumber(),
+                cachedGame.getRevision());
+      case DiscHeaderProbe.RESULT_NOT_A_GAME:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private Set<String> getCachedPaths()
+  {
+    Set<String> cachedPaths = new HashSet<>();
+    for (GameFile game : getAllGames())
+    {
+      cachedPaths.add(game.getPath());
+    }
+    return cachedPaths;
+  }
+
+  private boolean addNewGames(List<String> gamePaths, Set<String> cachedPaths,
+          ScanProgressListener listener) throws InterruptedException
+  {
+    if (listener == null)
+      return false;
+
+    List<String> newGamePaths = new ArrayList<>();
+    for (String gamePath : gamePaths)
+    {
+      if (!cachedPaths.contains(gamePath))
+        newGamePaths.add(gamePath);
+    }
+
+    boolean cacheChanged = false;
+    int total = newGamePaths.size();
+    int unreportedGames = 0;
+    long lastReportTime = SystemClock.elapsedRealtime();
+    for (int i = 0; i < total; i++)
+    {
+      if (Thread.interrupted())
+        throw new InterruptedException();
+
+      waitForPriorityRequests();
+      if (addGame(newGamePaths.get(i)))
+      {
+        cacheChanged = true;
+        unreportedGames++;
+      }
+
+      long now = SystemClock.elapsedRealtime();
+      if (unreportedGames >= PROGRESS_BATCH_SIZE ||
+              (unreportedGames > 0 && now - lastReportTime >= PROGRESS_INTERVAL_MS))
+      {
+        listener.onScanProgress(i + 1, total);
+        unreportedGames = 0;
+        lastReportTime = now;
+      }
     }
+
     return cacheChanged;
   }
 
-  public native GameFile[] getAllGames();
+  /**
+   * Applies changes to individual files in the game folders without scanning the folders.
+   * Paths that don't look like games are ignored.
+   *
+   * The native cache never parses a file again once it is cached, so a cached file that has
+   * changed is probed. If it still has the ID, disc number and revision of the cached game, the
+   * cached game is kept as it is. Otherwise the file has been replaced, and it is parsed again.
+   *
+   * @param changedPaths Files that have been created, modified, moved or deleted.
+   * @return true if the cache was modified
+   */
+  public boolean applyFileChanges(Collection<String> changedPaths)
+  {
+    boolean cacheChanged = false;
+    Set<String> removedPaths = new HashSet<>();
+    List<String> replacedPaths = new ArrayList<>();
+    Set<String> changedFolders = new HashSet<>();
+    Map<String, GameFile> cachedGames = null;
+    DiscHeaderProbe probe = null;
+
+    for (String path : changedPaths)
+    {
+      File file = new File(path);
+      if (!GameFolderScanner.hasGameExtension(file.getName()))
+        continue;
+
+      changedFolders.add(file.getParent());
+      if (file.isFile())
+      {
+        if (cachedGames == null)
+        {
+          cachedGames = getCachedGamesByPath();
+          probe = new DiscHeaderProbe();
+        }
+
+        GameFile cachedGame = cachedGames.get(path);
+        if (cachedGame != null && isReplaced(probe, file, cachedGame))
+        {
+          removedPaths.add(path);
+          replacedPaths.add(path);
+        }
+        else
+        {
+          waitForPriorityRequests();
+          cacheChanged |= addGame(path);
+        }
+      }
+      else
+      {
+        removedPaths.add(path);
+      }
+    }
+
+    if (!removedPaths.isEmpty())
+    {
+      // There is no native call for removing a single game, but passing
+      // every other cached path to update() has the same effect
+      List<String> remainingPaths = new ArrayList<>();
+      for (GameFile game : getAllGames())
+      {
+        if (!removedPaths.contains(game.getPath()))
+          remainingPaths.add(game.getPath());
+      }
+
+      waitForPriorityRequests();
+      cacheChanged |= update(remainingPaths.toArray(new String[remainingPaths.size()]));
+    }
+
+    for (String path : replacedPaths)
+    {
+      waitForPriorityRequests();
+      addGame(path);
+    }
+
+    boolean cacheSaved = !cacheChanged || save();
+
+    // Only some of the changes in these folders may have been seen here, so the next rescan
+    // has to walk them again rather than trust a fingerprint taken now
+    boolean fingerprintsChanged = false;
+    for (String folderPath : changedFolders)
+    {
+      fingerprintsChanged |= mFolderFingerprints.remove(folderPath);
+    }
+    if (fingerprintsChanged && cacheSaved)
+      mFolderFingerprints.save();
+
+    return cacheChanged;
+  }
+
+  /**
+   * Adds a game to the cache without creating a Java object for it, since scans add far more
+   * games than anything ever looks at before the next getAllGames call.
+   *
+   * @return true if the game wasn't in the cache yet, or its additional metadata has changed
+   */
+  private synchronized native boolean addGame(String gamePath);
+
+  /**
+   * Like addOrGet, but if a scan is running, it lets this call go ahead of its own work.
+   */
+  public GameFile addOrGetWithPriority(String gamePath)
+  {
+    synchronized (mPriorityRequestLock)
+    {
+      mPriorityRequests++;
+    }
+
+    try
+    {
+      return addOrGet(gamePath);
+    }
+    finally
+    {
+      synchronized (mPriorityRequestLock)
+      {
+        mPriorityRequests--;
+        mPriorityRequestLock.notifyAll();
+      }
+    }
+  }
+
+  private void waitForPriorityRequests()
+  {
+    synchronized (mPriorityRequestLock)
+    {
+      boolean interrupted = false;
+      while (mPriorityRequests > 0)
+      {
+        try
+        {
+          mPriorityRequestLock.wait();
+        }
+        catch (InterruptedException e)
+        {
+          interrupted = true;
+        }
+      }
+
+      // Leave the interruption for the scan's own checks to handle
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Loads the cache from disk, along with the folder fingerprints of the scan that produced it.
+   */
+  public boolean load()
+  {
+    boolean loaded = loadCache();
+
+    // Without the cached games, the fingerprints would make a rescan skip folders whose games
+    // never made it into the cache, so only trust them if the cache itself could be read.
+    mFolderFingerprints = loaded ? GameFolderFingerprints.load(mFolderFingerprintsFile) :
+            GameFolderFingerprints.empty(mFolderFingerprintsFile);
+
+    return loaded;
+  }
+
+  /**
+   * @return A new array, which the caller may reorder. Games that haven't changed since the
+   * previous call are the same objects as in the array that call returned.
+   */
+  public synchronized GameFile[] getAllGames()
+  {
+    mGameFiles = getAllGames(mGameFiles);
+    return Arrays.copyOf(mGameFiles, mGameFiles.length);
+  }
+
+  private synchronized native GameFile[] getAllGames(GameFile[] reusableGameFiles);
 
-  public native GameFile addOrGet(String gamePath);
+  public synchronized native GameFile addOrGet(String gamePath);
 
-  private native boolean update(String[] folderPaths);
+  private synchronized native boolean update(String[] gamePaths);
 
-  private native boolean updateAdditionalMetadata();
+  private synchronized native boolean updateAdditionalMetadata();
 
-  public native boolean load();
+  private synchronized native boolean loadCache();
 
-  private native boolean save();
+  private synchronized native boolean save();
 }
@@ -0,0 +1,175 @@
+package org.dolphinemu.dolphinemu.model;
+
+import org.dolphinemu.dolphinemu.ui.platform.Platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of the game library. All the lookup structures are built once when the
+ * snapshot is created, so that reading from it never has to go through JNI.
+ */
+public final class GameFileSnapshot
+{
+  public static final GameFileSnapshot EMPTY = new GameFileSnapshot(new GameFile[]{}, null);
+
+  private static final class Entry
+  {
+    final GameFile gameFile;
+    final int discNumber;
+    final int revision;
+
+    Entry(GameFile gameFile, int discNumber, int revision)
+    {
+      this.gameFile = gameFile;
+      this.discNumber = discNumber;
+      this.revision = revision;
+    }
+  }
+
+  private final GameFile[] mGameFiles;
+  private final Map<Platform, List<GameFile>> mGamesByPlatform = new EnumMap<>(Platform.class);
+  private final Map<String, List<Entry>> mGamesByGameId = new HashMap<>();
+  private final Map<String, GameFile> mGamesByDisc = new HashMap<>();
+  private final GameSearchIndex mSearchIndex;
+
+  /**
+   * Builds the lookup structures and the search index, which takes a while for a large library,
+   * so snapshots are only created on the game library's scheduler thread.
+   *
+   * @param gameFiles The games of the library, already in display order.
+   * @param previous  The snapshot this one replaces, if any. Parts of its search index
+   *                  that are still valid get reused.
+   */
+  public GameFileSnapshot(GameFile[] gameFiles, GameFileSnapshot previous)
+  {
+    mGameFiles = gameFiles;
+    mSearchIndex = new GameSearchIndex(gameFiles, previous == null ? null : previous.mSearchIndex);
+
+    Map<Platform, List<GameFile>> platformGames = new EnumMap<>(Platform.class);
+    for (Platform platform : Platform.values())
+    {
+      platformGames.put(platform, new ArrayList<>());
+    }
+
+    for (GameFile game : gameFiles)
+    {
+      String gameId = game.getGameId();
+      Entry entry = new Entry(game, game.getDiscNumber(), game.getRevision());
+
+      platformGames.get(Platform.fromNativeInt(game.getPlatform())).add(game);
+
+      List<Entry> entries = mGamesByGameId.get(gameId);
+      if (entries == null)
+      {
+        entries = new ArrayList<>(1);
+        mGamesByGameId.put(gameId, entries);
+      }
+      entries.add(entry);
+
+      // Keep the first match, like the linear search this replaces did
+      String discKey = discKey(gameId, entry.discNumber, entry.revision);
+      if (!mGamesByDisc.containsKey(discKey))
+      {
+        mGamesByDisc.put(discKey, game);
+      }
+    }
+
+    for (Map.Entry<Platform, List<GameFile>> platformEntry : platformGames.entrySet())
+    {
+      mGamesByPlatform.put(platformEntry.getKey(),
+              Collections.unmodifiableList(platformEntry.getValue()));
+    }
+  }
+
+  private static String discKey(String gameId, int discNumber, int revision)
+  {
+    return gameId + '/' + discNumber + '/' + revision;
+  }
+
+  public int size()
+  {
+    return mGameFiles.length;
+  }
+
+  public List<GameFile> getAllGames()
+  {
+    return Collections.unmodifiableList(Arrays.asList(mGameFiles));
+  }
+
+  public List<GameFile> getGamesForPlatform(Platform platform)
+  {
+    return mGamesByPlatform.get(platform);
+  }
+
+  /**
+   * Returns the games whose title, company or game ID match the query, in display order.
+   */
+  public List<GameFile> search(String query)
+  {
+    return mSearchIndex.search(query);
+  }
+
+  /**
+   * Like search, but only returns games for the given platform.
+   */
+  public List<GameFile> search(String query, Platform platform)
+  {
+    List<GameFile> results = new ArrayList<>();
+    for (GameFile game : mSearchIndex.search(query))
+    {
+      if (Platform.fromNativeInt(game.getPlatform()) == platform)
+        results.add(game);
+    }
+    return results;
+  }
+
+  public GameFile getGameByGameId(String gameId)
+  {
+    List<Entry> entries = mGamesByGameId.get(gameId);
+    return entries == null ? null : entries.get(0).gameFile;
+  }
+
+  public GameFile getGame(String gameId, int discNumber, int revision)
+  {
+    return mGamesByDisc.get(discKey(gameId, discNumber, revision));
+  }
+
+  /**
+   * Finds another disc of the same game, preferring one with the same revision.
+   */
+  public GameFile findSecondDisc(GameFile game)
+  {
+    String gameId = game.getGameId();
+    List<Entry> entries = mGamesByGameId.get(gameId);
+    if (entries == null)
+      return null;
+
+    int discNumber = game.getDiscNumber();
+    int revision = game.getRevision();
+
+    // Two-disc games are by far the most common case, so try the direct lookup first
+    GameFile otherDisc = getGame(gameId, discNumber == 0 ? 1 : 0, revision);
+    if (otherDisc != null)
+      return otherDisc;
+
+    GameFile matchWithoutRevision = null;
+    for (Entry entry : entries)
+    {
+      if (entry.discNumber != discNumber)
+      {
+        if (entry.revision == revision)
+          return entry.gameFile;
+        else
+          matchWithoutRevision = entry.gameFile;
+      }
+    }
+
+    return matchWithoutRevision;
+  }
+}
@@ -0,0 +1,181 @@
+package org.dolphinemu.dolphinemu.model;
+
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.utils.Fnv1a;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers what each game folder looked like during the last scan, so that a rescan can tell
+ * which folders have changed without asking the native code to walk them again.
+ *
+ * Game folders are scanned non-recursively, so a folder's own modification time, its number of
+ * entries and the names of those entries are enough to notice added, removed and renamed games.
+ */
+public final class GameFolderFingerprints
+{
+  private static final int FILE_VERSION = 1;
+
+  public static final class Fingerprint
+  {
+    private final long mLastModified;
+    private final int mEntryCount;
+    private final long mNameHash;
+
+    private Fingerprint(long lastModified, int entryCount, long nameHash)
+    {
+      mLastModified = lastModified;
+      mEntryCount = entryCount;
+      mNameHash = nameHash;
+    }
+
+    /**
+     * @param folder The folder to fingerprint.
+     * @param names  The result of calling list() on the folder.
+     */
+    public static Fingerprint of(File folder, String[] names)
+    {
+      // Summing the per-name hashes makes the result independent of the listing order
+      long nameHash = 0;
+      for (String name : names)
+      {
+        nameHash += Fnv1a.hash(name);
+      }
+      return new Fingerprint(folder.lastModified(), names.length, nameHash);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (!(obj instanceof Fingerprint))
+        return false;
+
+      Fingerprint other = (Fingerprint) obj;
+      return mLastModified == other.mLastModified && mEntryCount == other.mEntryCount &&
+              mNameHash == other.mNameHash;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return (int) (mLastModified ^ mNameHash) * 31 + mEntryCount;
+    }
+  }
+
+  private final AtomicFile mFile;
+  private final Map<String, Fingerprint> mFingerprints = new HashMap<>();
+
+  private GameFolderFingerprints(File file)
+  {
+    mFile = new AtomicFile(file);
+  }
+
+  public static GameFolderFingerprints empty(File file)
+  {
+    return new GameFolderFingerprints(file);
+  }
+
+  /**
+   * Reads the fingerprints stored in the given file. If the file is missing or unreadable, the
+   * returned object is empty, which makes every folder count as changed.
+   */
+  public static GameFolderFingerprints load(File file)
+  {
+    GameFolderFingerprints fingerprints = new GameFolderFingerprints(file);
+    try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(fingerprints.mFile.openRead())))
+    {
+      if (in.readInt() != FILE_VERSION)
+        return fingerprints;
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        String path = in.readUTF();
+        long lastModified = in.readLong();
+        int entryCount = in.readInt();
+        long nameHash = in.readLong();
+        fingerprints.mFingerprints.put(path, new Fingerprint(lastModified, entryCount, nameHash));
+      }
+    }
+    catch (FileNotFoundException e)
+    {
+      // Nothing has been scanned yet
+    }
+    catch (IOException e)
+    {
+      Log.warning("[GameFolderFingerprints] Failed to read " + file + ": " + e.getMessage());
+      fingerprints.mFingerprints.clear();
+    }
+
+    return fingerprints;
+  }
+
+  public void save()
+  {
+    FileOutputStream stream = null;
+    try
+    {
+      stream = mFile.startWrite();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      out.writeInt(FILE_VERSION);
+      out.writeInt(mFingerprints.size());
+      for (Map.Entry<String, Fingerprint> entry : mFingerprints.entrySet())
+      {
+        Fingerprint fingerprint = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeLong(fingerprint.mLastModified);
+        out.writeInt(fingerprint.mEntryCount);
+        out.writeLong(fingerprint.mNameHash);
+      }
+      out.flush();
+      mFile.finishWrite(stream);
+    }
+    catch (IOException e)
+    {
+      Log.warning("[GameFolderFingerprints] Failed to write " + mFile.getBaseFile() + ": " +
+              e.getMessage());
+      mFile.failWrite(stream);
+    }
+  }
+
+  public Set<String> getFolderPaths()
+  {
+    return mFingerprints.keySet();
+  }
+
+  public Fingerprint get(String folderPath)
+  {
+    return mFingerprints.get(folderPath);
+  }
+
+  public void put(String folderPath, Fingerprint fingerprint)
+  {
+    mFingerprints.put(folderPath, fingerprint);
+  }
+
+  /**
+   * @return true if there was a fingerprint for the folder
+   */
+  public boolean remove(String folderPath)
+  {
+    return mFingerprints.remove(folderPath) != null;
+  }
+
+  public void clear()
+  {
+    mFingerprints.clear();
+  }
+}
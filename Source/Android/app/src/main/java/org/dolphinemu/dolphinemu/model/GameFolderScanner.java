@@ -0,0 +1,169 @@
+package org.dolphinemu.dolphinemu.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Walks game folders on a small pool of worker threads, so that folders on independent storage
+ * (internal storage, SD cards, USB drives) are read at the same time instead of one by one.
+ */
+final class GameFolderScanner implements AutoCloseable
+{
+  private static final String[] GAME_EXTENSIONS = {
+          ".gcm", ".tgc", ".iso", ".ciso", ".gcz", ".wbfs", ".wad", ".dol", ".elf"};
+
+  static final class FolderListing
+  {
+    final String path;
+    final String[] names;
+    final GameFolderFingerprints.Fingerprint fingerprint;
+
+    private FolderListing(String path, String[] names,
+            GameFolderFingerprints.Fingerprint fingerprint)
+    {
+      this.path = path;
+      this.names = names;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  private final ExecutorService mExecutor;
+
+  /**
+   * @param folderCount The number of folders that will be scanned. No more threads than this,
+   *                    or than the number of CPU cores, are started.
+   */
+  GameFolderScanner(int folderCount)
+  {
+    int threadCount =
+            Math.max(1, Math.min(folderCount, Runtime.getRuntime().availableProcessors()));
+    AtomicInteger threadNumber = new AtomicInteger();
+    mExecutor = Executors.newFixedThreadPool(threadCount, runnable ->
+    {
+      Thread thread = new Thread(runnable, "GameFolderScanner-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  static boolean hasGameExtension(String fileName)
+  {
+    for (String extension : GAME_EXTENSIONS)
+    {
+      if (fileName.regionMatches(true, fileName.length() - extension.length(), extension, 0,
+              extension.length()))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Lists the entries of every folder and computes their fingerprints.
+   */
+  List<FolderListing> listFolders(Collection<String> folderPaths) throws InterruptedException
+  {
+    List<Callable<FolderListing>> tasks = new ArrayList<>(folderPaths.size());
+    for (String folderPath : folderPaths)
+    {
+      tasks.add(() ->
+      {
+        File folder = new File(folderPath);
+        String[] names = folder.list();
+        if (names == null)
+          names = new String[0];
+
+        return new FolderListing(folderPath, names,
+                GameFolderFingerprints.Fingerprint.of(folder, names));
+      });
+    }
+
+    return runAll(tasks);
+  }
+
+  /**
+   * Picks out the entries of the listed folders that might be games. Games that are already in
+   * the cache are kept without looking at them on disk. The other names with a game extension are
+   * only looked at in folders that have changed, since the previous scan already turned down the
+   * ones in an unchanged folder. Directories are rejected like the native search does, and files
+   * whose header doesn't match any supported format are left out.
+   *
+   * @param cachedPaths        The paths of the games that are in the cache.
+   * @param changedFolderPaths The folders whose fingerprint differs from the previous scan.
+   * @return The candidate paths of all folders, merged into one list.
+   */
+  List<String> findGamePaths(List<FolderListing> listings, Set<String> cachedPaths,
+          Set<String> changedFolderPaths) throws InterruptedException
+  {
+    List<Callable<List<String>>> tasks = new ArrayList<>(listings.size());
+    for (FolderListing listing : listings)
+    {
+      boolean folderChanged = changedFolderPaths.contains(listing.path);
+      tasks.add(() ->
+      {
+        DiscHeaderProbe probe = folderChanged ? new DiscHeaderProbe() : null;
+        List<String> gamePaths = new ArrayList<>();
+        for (String name : listing.names)
+        {
+          if (!hasGameExtension(name))
+            continue;
+
+          // Creating the File doesn't touch the disk, it only normalizes the path
+          File file = new File(listing.path + File.separator + name);
+          String path = file.getPath();
+          if (cachedPaths.contains(path))
+          {
+            gamePaths.add(path);
+          }
+          else if (folderChanged)
+          {
+            if (file.isFile() && probe.probe(file) != DiscHeaderProbe.RESULT_NOT_A_GAME)
+              gamePaths.add(path);
+          }
+        }
+        return gamePaths;
+      });
+    }
+
+    List<String> allGamePaths = new ArrayList<>();
+    for (List<String> gamePaths : runAll(tasks))
+    {
+      allGamePaths.addAll(gamePaths);
+    }
+    return allGamePaths;
+  }
+
+  private <T> List<T> runAll(List<Callable<T>> tasks) throws InterruptedException
+  {
+    List<T> results = new ArrayList<>(tasks.size());
+    for (Future<T> future : mExecutor.invokeAll(tasks))
+    {
+      try
+      {
+        results.add(future.get());
+      }
+      catch (ExecutionException e)
+      {
+        // Nothing in the tasks throws checked exceptions, so pass on whatever went wrong
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public void close()
+  {
+    mExecutor.shutdownNow();
+  }
+}
@@ -0,0 +1,278 @@
+package org.dolphinemu.dolphinemu.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable full-text index over the title, company and game ID of every game in a snapshot.
+ *
+ * Query words of three or more characters are looked up through trigram postings and then
+ * checked against the game's text, and shorter words are matched against the start of the
+ * game's words. Every query word has to match for a game to be part of the results.
+ *
+ * The index is built when it is created, on the thread that builds the snapshot, so that
+ * searching from the UI thread only has to look things up. Building an index for a snapshot that
+ * mostly has the same games as the previous one is cheap, since it reuses the previous documents.
+ */
+public final class GameSearchIndex
+{
+  private static final int[] NO_POSTINGS = new int[0];
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  // Normalizing and splitting up the text is the expensive part of indexing a game, so the
+  // result is kept around and reused when the next snapshot contains a game with the same metadata
+  private static final class Document
+  {
+    final String title;
+    final String company;
+    final String gameId;
+    final String text;
+
+    // The distinct trigrams and one and two character word prefixes of the text,
+    // which can share one postings map since they never have the same length
+    final String[] keys;
+
+    Document(GameFile game)
+    {
+      title = game.getTitle();
+      company = game.getCompany();
+      gameId = game.getGameId();
+      text = normalize(title + ' ' + company + ' ' + gameId);
+
+      Set<String> keySet = new HashSet<>();
+      for (int start = 0; start + 3 <= text.length(); start++)
+      {
+        if (text.charAt(start) != ' ' && text.charAt(start + 1) != ' ' &&
+                text.charAt(start + 2) != ' ')
+        {
+          keySet.add(text.substring(start, start + 3));
+        }
+      }
+
+      for (String word : text.split(" "))
+      {
+        if (word.isEmpty())
+          continue;
+
+        keySet.add(word.substring(0, 1));
+        if (word.length() >= 2)
+          keySet.add(word.substring(0, 2));
+      }
+
+      keys = keySet.toArray(new String[keySet.size()]);
+    }
+
+    boolean describes(GameFile game)
+    {
+      return title.equals(game.getTitle()) && company.equals(game.getCompany()) &&
+              gameId.equals(game.getGameId());
+    }
+  }
+
+  private static final class PostingsBuilder
+  {
+    int[] documents = new int[4];
+    int size = 0;
+
+    void add(int document)
+    {
+      if (size == documents.length)
+        documents = Arrays.copyOf(documents, size * 2);
+      documents[size++] = document;
+    }
+
+    int[] toArray()
+    {
+      return size == documents.length ? documents : Arrays.copyOf(documents, size);
+    }
+  }
+
+  private final GameFile[] mGames;
+  private final Document[] mDocuments;
+  private final Map<String, Document> mDocumentsByPath;
+  private final Map<String, int[]> mPostings;
+
+  /**
+   * Builds the index, which takes a while for a large library, so it shouldn't be called on the
+   * UI thread.
+   *
+   * @param games    The games to index, in the order results should be returned in.
+   * @param previous An index of an earlier snapshot to reuse work from, or null.
+   */
+  public GameSearchIndex(GameFile[] games, GameSearchIndex previous)
+  {
+    mGames = games;
+    mDocuments = new Document[games.length];
+    mDocumentsByPath = new HashMap<>(games.length * 2);
+
+    Map<String, PostingsBuilder> postings = new HashMap<>();
+    for (int i = 0; i < games.length; i++)
+    {
+      GameFile game = games[i];
+      Document document = previous == null ? null : previous.mDocumentsByPath.get(game.getPath());
+      if (document == null || !document.describes(game))
+        document = new Document(game);
+
+      mDocuments[i] = document;
+      mDocumentsByPath.put(game.getPath(), document);
+
+      // Documents are added in order, so every postings list ends up sorted
+      for (String key : document.keys)
+      {
+        PostingsBuilder builder = postings.get(key);
+        if (builder == null)
+        {
+          builder = new PostingsBuilder();
+          postings.put(key, builder);
+        }
+        builder.add(i);
+      }
+    }
+
+    mPostings = new HashMap<>(postings.size() * 2);
+    for (Map.Entry<String, PostingsBuilder> entry : postings.entrySet())
+    {
+      mPostings.put(entry.getKey(), entry.getValue().toArray());
+    }
+  }
+
+  /**
+   * Lowercases the text, strips accents and turns everything that isn't a letter or a digit
+   * into single spaces, so that "Pokémon: Colosseum" and "pokemon colosseum" match.
+   */
+  static String normalize(String text)
+  {
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    String lowerCase = DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+
+    StringBuilder builder = new StringBuilder(lowerCase.length());
+    boolean lastWasSpace = true;
+    for (int i = 0; i < lowerCase.length(); i++)
+    {
+      char c = lowerCase.charAt(i);
+      if (Character.isLetterOrDigit(c))
+      {
+        builder.append(c);
+        lastWasSpace = false;
+      }
+      else if (!lastWasSpace)
+      {
+        builder.append(' ');
+        lastWasSpace = true;
+      }
+    }
+
+    int length = builder.length();
+    if (length > 0 && builder.charAt(length - 1) == ' ')
+      builder.setLength(length - 1);
+    return builder.toString();
+  }
+
+  /**
+   * @return The matching games, in the same order as in the snapshot. An empty query
+   * matches every game.
+   */
+  public List<GameFile> search(String query)
+  {
+    String normalizedQuery = normalize(query);
+    if (normalizedQuery.isEmpty())
+      return Collections.unmodifiableList(Arrays.asList(mGames));
+
+    String[] words = normalizedQuery.split(" ");
+    int[] candidates = null;
+    for (String word : words)
+    {
+      int[] postings = word.length() >= 3 ? trigramCandidates(word) : prefixCandidates(word);
+      candidates = candidates == null ? postings : intersect(candidates, postings);
+      if (candidates.length == 0)
+        return Collections.emptyList();
+    }
+
+    List<GameFile> results = new ArrayList<>(candidates.length);
+    for (int candidate : candidates)
+    {
+      if (matchesAll(mDocuments[candidate].text, words))
+        results.add(mGames[candidate]);
+    }
+    return results;
+  }
+
+  private int[] trigramCandidates(String word)
+  {
+    int[] candidates = null;
+    for (int start = 0; start + 3 <= word.length(); start++)
+    {
+      int[] postings = mPostings.get(word.substring(start, start + 3));
+      if (postings == null)
+        return NO_POSTINGS;
+
+      candidates = candidates == null ? postings : intersect(candidates, postings);
+      if (candidates.length == 0)
+        return NO_POSTINGS;
+    }
+    return candidates;
+  }
+
+  private int[] prefixCandidates(String word)
+  {
+    int[] postings = mPostings.get(word);
+    return postings == null ? NO_POSTINGS : postings;
+  }
+
+  private static int[] intersect(int[] a, int[] b)
+  {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length)
+    {
+      if (a[i] < b[j])
+      {
+        i++;
+      }
+      else if (a[i] > b[j])
+      {
+        j++;
+      }
+      else
+      {
+        result[count++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+
+  private static boolean matchesAll(String text, String[] words)
+  {
+    for (String word : words)
+    {
+      if (word.length() >= 3 ? !text.contains(word) : !startsWord(text, word))
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean startsWord(String text, String word)
+  {
+    int index = text.indexOf(word);
+    while (index >= 0)
+    {
+      if (index == 0 || text.charAt(index - 1) == ' ')
+        return true;
+      index = text.indexOf(word, index + 1);
+    }
+    return false;
+  }
+}
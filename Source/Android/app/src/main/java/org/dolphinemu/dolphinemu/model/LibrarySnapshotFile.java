@@ -0,0 +1,205 @@
+package org.dolphinemu.dolphinemu.model;
+
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores the metadata of the last published game list in a compact file that can be read with
+ * a single memory mapping, so that the game list can be shown right away on a cold start instead
+ * of waiting for the directories to be initialized and the native game file cache to be loaded.
+ *
+ * The games read from the file aren't backed by native game files. They get replaced once the
+ * native cache has been loaded, which also picks up anything that changed in the meantime.
+ */
+public final class LibrarySnapshotFile
+{
+  private static final int MAGIC = 0x44474C53;  // "DGLS"
+  private static final int FORMAT_VERSION = 1;
+
+  // Magic, format version, game count, string pool offset
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 4;
+
+  // Platform, country, region, disc number, revision, then the offset and length of each string
+  private static final int STRING_COUNT = 6;
+  private static final int ENTRY_SIZE = 5 * 4 + STRING_COUNT * (4 + 4);
+
+  private final AtomicFile mFile;
+
+  // The games that were last written, or read, so that a list that hasn't changed isn't written
+  private GameFile[] mSavedGames;
+
+  public LibrarySnapshotFile(File file)
+  {
+    mFile = new AtomicFile(file);
+  }
+
+  /**
+   * @return The games of the last saved game list, in display order, or null if there is
+   * no usable file.
+   */
+  public synchronized GameFile[] load()
+  {
+    try
+    {
+      // The mapping stays valid after the file is closed
+      ByteBuffer buffer;
+      try (FileInputStream in = mFile.openRead())
+      {
+        FileChannel channel = in.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+
+      if (!isValid(buffer))
+      {
+        Log.warning("[LibrarySnapshotFile] Ignoring " + mFile.getBaseFile() +
+                ", which is outdated or damaged");
+        return null;
+      }
+
+      int count = buffer.getInt(8);
+      int poolOffset = buffer.getInt(12);
+      GameFile[] games = new GameFile[count];
+      for (int i = 0; i < count; i++)
+      {
+        int entry = HEADER_SIZE + i * ENTRY_SIZE;
+        int strings = entry + 5 * 4;
+        games[i] = GameFile.withoutNativeObject(buffer.getInt(entry),
+                readString(buffer, poolOffset, strings),
+                readString(buffer, poolOffset, strings + 8),
+                readString(buffer, poolOffset, strings + 16),
+                buffer.getInt(entry + 4), buffer.getInt(entry + 8),
+                readString(buffer, poolOffset, strings + 24),
+                readString(buffer, poolOffset, strings + 32),
+                readString(buffer, poolOffset, strings + 40),
+                buffer.getInt(entry + 12), buffer.getInt(entry + 16));
+      }
+
+      mSavedGames = games;
+      return games;
+    }
+    catch (FileNotFoundException e)
+    {
+      return null;
+    }
+    catch (IOException | IndexOutOfBoundsException e)
+    {
+      Log.warning("[LibrarySnapshotFile] Failed to read " + mFile.getBaseFile() + ": " +
+              e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Replaces the file with the given games, unless they are the same objects that were saved
+   * last time. The game file cache hands out the same objects for games that haven't changed,
+   * so this skips the write when nothing has.
+   */
+  public synchronized void save(GameFile[] games)
+  {
+    if (mSavedGames != null && isSameGames(mSavedGames, games))
+      return;
+
+    ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    FileOutputStream stream = null;
+    try
+    {
+      stream = mFile.startWrite();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(games.length);
+      out.writeInt(HEADER_SIZE + games.length * ENTRY_SIZE);
+
+      for (GameFile game : games)
+      {
+        out.writeInt(game.getPlatform());
+        out.writeInt(game.getCountry());
+        out.writeInt(game.getRegion());
+        out.writeInt(game.getDiscNumber());
+        out.writeInt(game.getRevision());
+        writeString(out, pool, game.getTitle());
+        writeString(out, pool, game.getDescription());
+        writeString(out, pool, game.getCompany());
+        writeString(out, pool, game.getPath());
+        writeString(out, pool, game.getGameId());
+        writeString(out, pool, game.getGameTdbId());
+      }
+
+      pool.writeTo(out);
+      out.flush();
+      mFile.finishWrite(stream);
+    }
+    catch (IOException e)
+    {
+      Log.warning("[LibrarySnapshotFile] Failed to write " + mFile.getBaseFile() + ": " +
+              e.getMessage());
+      mFile.failWrite(stream);
+      return;
+    }
+
+    mSavedGames = games.clone();
+  }
+
+  private static boolean isSameGames(GameFile[] lhs, GameFile[] rhs)
+  {
+    if (lhs.length != rhs.length)
+      return false;
+
+    for (int i = 0; i < lhs.length; i++)
+    {
+      if (lhs[i] != rhs[i])
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean isValid(ByteBuffer buffer)
+  {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ||
+            buffer.getInt(4) != FORMAT_VERSION)
+    {
+      return false;
+    }
+
+    long count = buffer.getInt(8);
+    long poolOffset = buffer.getInt(12);
+    return count >= 0 && poolOffset == HEADER_SIZE + count * ENTRY_SIZE &&
+            poolOffset <= buffer.capacity();
+  }
+
+  private static void writeString(DataOutputStream out, ByteArrayOutputStream pool, String string)
+          throws IOException
+  {
+    byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+    out.writeInt(pool.size());
+    out.writeInt(bytes.length);
+    pool.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer, int poolOffset, int position)
+  {
+    int offset = buffer.getInt(position);
+    int length = buffer.getInt(position + 4);
+    if (offset < 0 || length < 0 || poolOffset + (long) offset + length > buffer.capacity())
+      throw new IndexOutOfBoundsException("String out of bounds at " + position);
+
+    byte[] bytes = new byte[length];
+    ByteBuffer string = buffer.duplicate();
+    string.position(poolOffset + offset);
+    string.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,96 @@
+package org.dolphinemu.dolphinemu.model;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Frees native objects owned by Java wrappers, either explicitly through Handle.clean or on a
+ * background thread once the wrapper has become unreachable. Unlike finalizers, this doesn't keep
+ * the wrappers alive for an extra garbage collection cycle, and the cleanup work doesn't compete
+ * with every other finalizable object in the process for the single finalizer thread.
+ */
+final class NativeCleaner
+{
+  interface Releaser
+  {
+    /**
+     * Frees the native object. May be called on any thread, but only once per pointer.
+     */
+    void release(long pointer);
+  }
+
+  static final class Handle extends PhantomReference<Object>
+  {
+    private final Releaser mReleaser;
+    private long mPointer;
+
+    private Handle(Object owner, long pointer, Releaser releaser)
+    {
+      super(owner, queue);
+      mPointer = pointer;
+      mReleaser = releaser;
+    }
+
+    /**
+     * Frees the native object now, if that hasn't happened already.
+     */
+    void clean()
+    {
+      long pointer;
+      synchronized (this)
+      {
+        pointer = mPointer;
+        mPointer = 0;
+      }
+
+      if (pointer != 0)
+      {
+        handles.remove(this);
+        mReleaser.release(pointer);
+      }
+    }
+  }
+
+  private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+  // Phantom references are only enqueued while they themselves are reachable
+  private static final Set<Handle> handles =
+          Collections.newSetFromMap(new ConcurrentHashMap<Handle, Boolean>());
+
+  static
+  {
+    Thread thread = new Thread(() ->
+    {
+      while (true)
+      {
+        try
+        {
+          ((Handle) queue.remove()).clean();
+        }
+        catch (InterruptedException ignored)
+        {
+        }
+      }
+    }, "NativeCleaner");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private NativeCleaner()
+  {
+  }
+
+  /**
+   * Arranges for the native object to be freed once the owner is no longer reachable.
+   * The releaser must not hold a reference to the owner, or it will never become unreachable.
+   */
+  static Handle register(Object owner, long pointer, Releaser releaser)
+  {
+    Handle handle = new Handle(owner, pointer, releaser);
+    handles.add(handle);
+    return handle;
+  }
+}
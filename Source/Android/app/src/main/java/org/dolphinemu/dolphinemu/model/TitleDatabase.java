@@ -0,0 +1,458 @@
+package org.dolphinemu.dolphinemu.model;
+
+import android.content.Context;
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.NativeLibrary;
+import org.dolphinemu.dolphinemu.ui.platform.Platform;
+import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Game titles from the GameTDB title lists (wiitdb-*.txt) in the Sys directory, and from the
+ * user's own list in the Load directory, which takes precedence like in the native title database.
+ * Like in the native game list, the titles are in the language set for the game's platform,
+ * adjusted for the game's region, and only the user's titles are used if the builtin title
+ * database is disabled.
+ *
+ * The text files are parsed only when they change. Their contents are stored in the cache
+ * directory as a binary index made of a table of game IDs, sorted so that it can be
+ * binary searched, followed by a pool of UTF-8 titles. The index is memory mapped rather than
+ * read, so looking up a title doesn't need anything but the index pages that get touched.
+ */
+public final class TitleDatabase
+{
+  // The language codes of the title lists, in the order of DiscIO::Language
+  private static final String[] LANGUAGE_CODES =
+          {"ja", "en", "de", "fr", "es", "it", "nl", "zh_CN", "zh_TW", "ko"};
+  private static final int LANGUAGE_ENGLISH = 1;
+
+  // DiscIO::Region values, with anything else counting as unknown like in the native code
+  private static final int REGION_COUNT = 5;
+  private static final int REGION_UNKNOWN = 3;
+
+  private static volatile TitleDatabase instance;
+
+  private final File mUserList;
+  private final long mUserListModified;
+  private final long mUserListLength;
+  private final Index mUserIndex;
+
+  // The language for each platform and region, or null if the builtin title database is disabled
+  private final int[] mLanguages;
+  // Only has the title lists of the languages in mLanguages, and the English one as a fallback
+  private final Index[] mLanguageIndexes;
+
+  private TitleDatabase(File userList, Index userIndex, int[] languages, Index[] languageIndexes)
+  {
+    mUserList = userList;
+    mUserListModified = userList.lastModified();
+    mUserListLength = userList.length();
+    mUserIndex = userIndex;
+    mLanguages = languages;
+    mLanguageIndexes = languageIndexes;
+  }
+
+  /**
+   * Opens the user's title list and the title lists for the configured languages, building their
+   * indexes first if needed. If they are already open, only reopens the ones that have been
+   * changed since, either by the user or by the settings. Does file I/O, so it shouldn't be called
+   * on the UI thread. The Dolphin directories and the native settings must have been initialized.
+   *
+   * @return Whether the titles may be different from the ones of the previous load.
+   */
+  public static boolean load(Context context)
+  {
+    File sysDirectory = new File(DirectoryInitialization.getDolphinInternalDirectory());
+    File loadDirectory = new File(DirectoryInitialization.getUserDirectory(), "Load");
+    File cacheDirectory = context.getCacheDir();
+
+    // Like the native title database, titles.txt is only used if there is no wiitdb.txt
+    File userList = new File(loadDirectory, "wiitdb.txt");
+    if (userList.length() == 0)
+      userList = new File(loadDirectory, "titles.txt");
+
+    int[] languages = NativeLibrary.UseBuiltinTitleDatabase() ? getLanguages() : null;
+
+    TitleDatabase previous = instance;
+    boolean userListChanged = previous == null || !previous.mUserList.equals(userList) ||
+            previous.mUserListModified != userList.lastModified() ||
+            previous.mUserListLength != userList.length();
+    if (!userListChanged && Arrays.equals(previous.mLanguages, languages))
+      return false;
+
+    Index userIndex = userListChanged ?
+            Index.open(userList, new File(cacheDirectory, "wiitdb-user.idx")) :
+            previous.mUserIndex;
+
+    // The title lists in the Sys directory only change when the app gets updated
+    Index[] languageIndexes = new Index[LANGUAGE_CODES.length];
+    if (languages != null)
+    {
+      Index[] previousIndexes = previous == null ? null : previous.mLanguageIndexes;
+      openLanguageIndex(sysDirectory, cacheDirectory, LANGUAGE_ENGLISH, previousIndexes,
+              languageIndexes);
+      for (int language : languages)
+      {
+        openLanguageIndex(sysDirectory, cacheDirectory, language, previousIndexes,
+                languageIndexes);
+      }
+    }
+
+    instance = new TitleDatabase(userList, userIndex, languages, languageIndexes);
+    return true;
+  }
+
+  /**
+   * Gets the language of every platform and region from the native settings, which is a
+   * handful of values, rather than calling into native code once for every game.
+   */
+  private static int[] getLanguages()
+  {
+    int[] languages = new int[2 * REGION_COUNT];
+    for (int region = 0; region < REGION_COUNT; region++)
+    {
+      languages[region] = NativeLibrary.GetLanguageAdjustedForRegion(false, region);
+      languages[REGION_COUNT + region] = NativeLibrary.GetLanguageAdjustedForRegion(true, region);
+    }
+    return languages;
+  }
+
+  private static void openLanguageIndex(File sysDirectory, File cacheDirectory, int language,
+          Index[] previousIndexes, Index[] languageIndexes)
+  {
+    // Unknown languages have no title list
+    if (language < 0 || language >= LANGUAGE_CODES.length || languageIndexes[language] != null)
+      return;
+
+    if (previousIndexes != null && previousIndexes[language] != null)
+    {
+      languageIndexes[language] = previousIndexes[language];
+      return;
+    }
+
+    String languageCode = LANGUAGE_CODES[language];
+    languageIndexes[language] = Index.open(
+            new File(sysDirectory, "wiitdb-" + languageCode + ".txt"),
+            new File(cacheDirectory, "wiitdb-" + languageCode + ".idx"));
+  }
+
+  /**
+   * @return The database, or null if load hasn't finished yet.
+   */
+  public static TitleDatabase get()
+  {
+    return instance;
+  }
+
+  /**
+   * @return The title of the game, or null if the game isn't in the database.
+   */
+  public String getTitle(GameFile game)
+  {
+    return getTitle(game.getGameTdbId(), isWii(game.getPlatform()), game.getRegion());
+  }
+
+  /**
+   * @return The title from the user's list if there is one, otherwise the title in the language
+   * for the platform and region, otherwise the English title, or null if the game isn't in the
+   * database at all.
+   */
+  public String getTitle(String gameTdbId, boolean wii, int region)
+  {
+    byte[] id = gameTdbId == null ? null : Index.toId(gameTdbId);
+    if (id == null)
+      return null;
+
+    String title = mUserIndex == null ? null : mUserIndex.find(id);
+    if (isEmpty(title) && mLanguages != null)
+    {
+      if (region < 0 || region >= REGION_COUNT)
+        region = REGION_UNKNOWN;
+      int language = mLanguages[(wii ? REGION_COUNT : 0) + region];
+
+      if (language >= 0 && language < LANGUAGE_CODES.length &&
+              mLanguageIndexes[language] != null)
+      {
+        title = mLanguageIndexes[language].find(id);
+      }
+      if (isEmpty(title) && mLanguageIndexes[LANGUAGE_ENGLISH] != null)
+        title = mLanguageIndexes[LANGUAGE_ENGLISH].find(id);
+    }
+    return isEmpty(title) ? null : title;
+  }
+
+  /**
+   * @return "Title (ID)", or just the ID if the game isn't in the database. Since the region
+   * isn't known, the title is in the language set for the platform.
+   */
+  public String describe(String gameTdbId, int platform)
+  {
+    String title = getTitle(gameTdbId, isWii(platform), REGION_UNKNOWN);
+    return title == null ? gameTdbId : title + " (" + gameTdbId + ")";
+  }
+
+  private static boolean isWii(int platform)
+  {
+    return platform == Platform.WII.toInt() || platform == Platform.WIIWARE.toInt();
+  }
+
+  private static boolean isEmpty(String title)
+  {
+    return title == null || title.isEmpty();
+  }
+
+  private static final class Index
+  {
+    private static final int MAGIC = 0x57544442;  // "WTDB"
+    private static final int FORMAT_VERSION = 2;
+
+    // Magic, format version, source version, source length, entry count, string pool offset
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+    private static final int ID_SIZE = 8;
+    private static final int ENTRY_SIZE = ID_SIZE + 4 + 4;
+
+    // IDs shorter than this aren't game IDs, just like in the native title database
+    private static final int MIN_ID_LENGTH = 4;
+
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+    private final int mPoolOffset;
+
+    private Index(ByteBuffer buffer)
+    {
+      mBuffer = buffer;
+      mCount = buffer.getInt(24);
+      mPoolOffset = buffer.getInt(28);
+    }
+
+    static Index open(File source, File file)
+    {
+      AtomicFile indexFile = new AtomicFile(file);
+      if (!source.isFile())
+      {
+        indexFile.delete();
+        return null;
+      }
+
+      try
+      {
+        long sourceVersion = readSourceVersion(source);
+        long sourceLength = source.length();
+
+        ByteBuffer buffer = map(indexFile);
+        if (buffer == null || !isIndexOf(buffer, sourceVersion, sourceLength))
+        {
+          build(source, indexFile, sourceVersion, sourceLength);
+          buffer = map(indexFile);
+          if (buffer == null || !isIndexOf(buffer, sourceVersion, sourceLength))
+            return null;
+        }
+
+        return new Index(buffer);
+      }
+      catch (IOException e)
+      {
+        Log.warning("[TitleDatabase] Failed to open " + source + ": " + e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * @return The mapped index, or null if it hasn't been built yet.
+     */
+    private static ByteBuffer map(AtomicFile indexFile) throws IOException
+    {
+      // The mapping stays valid after the file is closed
+      try (FileInputStream in = indexFile.openRead())
+      {
+        FileChannel channel = in.getChannel();
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      catch (FileNotFoundException e)
+      {
+        return null;
+      }
+    }
+
+    private static boolean isIndexOf(ByteBuffer buffer, long sourceVersion, long sourceLength)
+    {
+      if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ||
+              buffer.getInt(4) != FORMAT_VERSION || buffer.getLong(8) != sourceVersion ||
+              buffer.getLong(16) != sourceLength)
+      {
+        return false;
+      }
+
+      long count = buffer.getInt(24);
+      long poolOffset = buffer.getInt(28);
+      return count >= 0 && poolOffset == HEADER_SIZE + count * ENTRY_SIZE &&
+              poolOffset <= buffer.capacity();
+    }
+
+    /**
+     * Reads the version from the header line of a title list, which looks like
+     * "TITLES = https://www.gametdb.com (type: Wii language: EN version: 20190127004733)".
+     * Lists without a version, like the ones users write themselves, are versioned by their
+     * modification time instead.
+     */
+    private static long readSourceVersion(File source) throws IOException
+    {
+      String header;
+      try (BufferedReader reader = new BufferedReader(
+              new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8)))
+      {
+        header = reader.readLine();
+      }
+
+      long version = 0;
+      int index = header == null ? -1 : header.indexOf("version: ");
+      if (index >= 0)
+      {
+        for (int i = index + "version: ".length(); i < header.length(); i++)
+        {
+          char c = header.charAt(i);
+          if (c < '0' || c > '9')
+            break;
+          version = version * 10 + (c - '0');
+        }
+      }
+      return version != 0 ? version : source.lastModified();
+    }
+
+    private static void build(File source, AtomicFile indexFile, long sourceVersion,
+            long sourceLength) throws IOException
+    {
+      // Sorted by ID, keeping the first title of IDs that are listed twice
+      Map<String, String> titles = new TreeMap<>();
+      try (BufferedReader reader = new BufferedReader(
+              new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8)))
+      {
+        // The header line is read like any other line, just like in the native title database
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          int equalsIndex = line.indexOf('=');
+          if (equalsIndex < 0)
+            continue;
+
+          String id = line.substring(0, equalsIndex).trim();
+          if (toId(id) != null && !titles.containsKey(id))
+            titles.put(id, line.substring(equalsIndex + 1).trim());
+        }
+      }
+
+      ByteArrayOutputStream pool = new ByteArrayOutputStream();
+      FileOutputStream stream = null;
+      try
+      {
+        stream = indexFile.startWrite();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sourceVersion);
+        out.writeLong(sourceLength);
+        out.writeInt(titles.size());
+        out.writeInt(HEADER_SIZE + titles.size() * ENTRY_SIZE);
+
+        for (Map.Entry<String, String> entry : titles.entrySet())
+        {
+          byte[] title = entry.getValue().getBytes(StandardCharsets.UTF_8);
+          out.write(toId(entry.getKey()));
+          out.writeInt(pool.size());
+          out.writeInt(title.length);
+          pool.write(title);
+        }
+
+        pool.writeTo(out);
+        out.flush();
+        indexFile.finishWrite(stream);
+      }
+      catch (IOException e)
+      {
+        indexFile.failWrite(stream);
+        throw e;
+      }
+    }
+
+    /**
+     * @return The ID as stored in the index, padded with zeroes, or null if it can't be stored.
+     */
+    static byte[] toId(String gameTdbId)
+    {
+      int length = gameTdbId.length();
+      if (length < MIN_ID_LENGTH || length > ID_SIZE)
+        return null;
+
+      byte[] id = new byte[ID_SIZE];
+      for (int i = 0; i < length; i++)
+      {
+        char c = gameTdbId.charAt(i);
+        if (c == 0 || c > 0x7F)
+          return null;
+        id[i] = (byte) c;
+      }
+      return id;
+    }
+
+    String find(byte[] id)
+    {
+      int low = 0;
+      int high = mCount - 1;
+      while (low <= high)
+      {
+        int middle = (low + high) >>> 1;
+        int comparison = compareId(HEADER_SIZE + middle * ENTRY_SIZE, id);
+        if (comparison < 0)
+        {
+          low = middle + 1;
+        }
+        else if (comparison > 0)
+        {
+          high = middle - 1;
+        }
+        else
+        {
+          int entry = HEADER_SIZE + middle * ENTRY_SIZE;
+          byte[] title = new byte[mBuffer.getInt(entry + ID_SIZE + 4)];
+          int offset = mPoolOffset + mBuffer.getInt(entry + ID_SIZE);
+          for (int i = 0; i < title.length; i++)
+          {
+            title[i] = mBuffer.get(offset + i);
+          }
+          return new String(title, StandardCharsets.UTF_8);
+        }
+      }
+      return null;
+    }
+
+    private int compareId(int position, byte[] id)
+    {
+      // IDs are ASCII, so comparing the bytes as signed values gives the same order as TreeMap
+      for (int i = 0; i < ID_SIZE; i++)
+      {
+        int difference = mBuffer.get(position + i) - id[i];
+        if (difference != 0)
+          return difference;
+      }
+      return 0;
+    }
+  }
+}
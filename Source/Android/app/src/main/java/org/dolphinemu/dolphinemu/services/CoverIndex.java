@@ -0,0 +1,106 @@
+package org.dolphinemu.dolphinemu.services;
+
+import org.dolphinemu.dolphinemu.model.GameFile;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Knows which cover files exist without checking the file system for every game. The folder of
+ * downloaded covers and each game folder are listed the first time they are needed, and after
+ * that the index is kept up to date by being told about downloads and file changes.
+ *
+ * Downloaded covers that are deleted from outside the app are only noticed on the next start.
+ */
+final class CoverIndex
+{
+  private static final String CUSTOM_COVER_SUFFIX = ".cover.png";
+
+  // Names of the files in the downloaded covers folder, or null if it hasn't been listed yet
+  private Set<String> mDownloadedCovers;
+
+  // Names of the custom covers in each game folder that has been listed
+  private final Map<String, Set<String>> mCustomCovers = new HashMap<>();
+
+  synchronized File findCustomCover(GameFile game)
+  {
+    File customCover = new File(game.getCustomCoverPath());
+    Set<String> names = getCustomCovers(customCover.getParent());
+    return names.contains(customCover.getName()) ? customCover : null;
+  }
+
+  synchronized File findDownloadedCover(GameFile game)
+  {
+    File cover = new File(game.getCoverPath());
+    return getDownloadedCovers(cover.getParentFile()).contains(cover.getName()) ? cover : null;
+  }
+
+  synchronized void onCoverDownloaded(File cover)
+  {
+    getDownloadedCovers(cover.getParentFile()).add(cover.getName());
+  }
+
+  static boolean isCustomCover(String path)
+  {
+    return path.endsWith(CUSTOM_COVER_SUFFIX);
+  }
+
+  /**
+   * Updates the index for a custom cover that was created, replaced or deleted.
+   */
+  synchronized void onCustomCoverChanged(File customCover, boolean exists)
+  {
+    Set<String> names = mCustomCovers.get(customCover.getParent());
+    if (names == null)
+      return;
+
+    if (exists)
+      names.add(customCover.getName());
+    else
+      names.remove(customCover.getName());
+  }
+
+  /**
+   * Forgets the contents of the game folders, for when changes to them couldn't be tracked.
+   */
+  synchronized void invalidateCustomCovers()
+  {
+    mCustomCovers.clear();
+  }
+
+  private Set<String> getDownloadedCovers(File folder)
+  {
+    if (mDownloadedCovers == null)
+      mDownloadedCovers = listFolder(folder, ".png");
+    return mDownloadedCovers;
+  }
+
+  private Set<String> getCustomCovers(String folderPath)
+  {
+    Set<String> names = mCustomCovers.get(folderPath);
+    if (names == null)
+    {
+      names = listFolder(new File(folderPath), CUSTOM_COVER_SUFFIX);
+      mCustomCovers.put(folderPath, names);
+    }
+    return names;
+  }
+
+  private static Set<String> listFolder(File folder, String suffix)
+  {
+    Set<String> names = new HashSet<>();
+    String[] folderNames = folder.list();
+    if (folderNames != null)
+    {
+      for (String name : folderNames)
+      {
+        if (name.endsWith(suffix))
+          names.add(name);
+      }
+    }
+    return names;
+  }
+}
@@ -0,0 +1,303 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.os.SystemClock;
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the covers of a whole game library ahead of time, so that scrolling through it
+ * for the first time doesn't have to wait for the network card by card.
+ *
+ * Only a limited number of downloads run at once, and they are spaced out so that GameTDB
+ * doesn't see a burst of requests. The IDs that are left to fetch are written to disk as the
+ * prefetch goes on, so that a prefetch that gets cut short can be resumed when the app starts.
+ */
+final class CoverPrefetcher
+{
+  // Write the remaining IDs after this many games, and when the prefetch stops
+  private static final int PROGRESS_SAVE_INTERVAL = 20;
+
+  private final AtomicFile mQueueFile;
+  private final int mMaxConcurrentDownloads;
+  private final long mMinDownloadIntervalMs;
+
+  private Run mCurrentRun;
+  private long mNextDownloadTime;
+
+  /**
+   * @param queueFile              Where the IDs that are left to fetch are kept.
+   * @param maxConcurrentDownloads How many games may be downloading at the same time.
+   * @param minDownloadIntervalMs  How long to wait at least between starting two games.
+   */
+  CoverPrefetcher(File queueFile, int maxConcurrentDownloads, long minDownloadIntervalMs)
+  {
+    mQueueFile = new AtomicFile(queueFile);
+    mMaxConcurrentDownloads = maxConcurrentDownloads;
+    mMinDownloadIntervalMs = minDownloadIntervalMs;
+  }
+
+  /**
+   * Starts fetching the missing covers of the given games, replacing any prefetch that is
+   * already running.
+   */
+  synchronized void start(List<GameFile> games)
+  {
+    if (mCurrentRun != null)
+      mCurrentRun.cancel();
+
+    mCurrentRun = new Run(games);
+    mCurrentRun.start();
+  }
+
+  /**
+   * Continues a prefetch that didn't get to finish last time, if there is one.
+   */
+  synchronized void resume(List<GameFile> games)
+  {
+    Set<String> remainingIds = loadQueue();
+    if (remainingIds.isEmpty() || mCurrentRun != null)
+      return;
+
+    List<GameFile> remainingGames = new ArrayList<>();
+    for (GameFile game : games)
+    {
+      if (remainingIds.contains(game.getGameTdbId()))
+        remainingGames.add(game);
+    }
+    start(remainingGames);
+  }
+
+  private synchronized void onRunFinished(Run run)
+  {
+    if (mCurrentRun == run)
+      mCurrentRun = null;
+  }
+
+  private void waitForDownloadSlot() throws InterruptedException
+  {
+    long waitMs;
+    synchronized (this)
+    {
+      long now = SystemClock.elapsedRealtime();
+      long slot = Math.max(now, mNextDownloadTime);
+      mNextDownloadTime = slot + mMinDownloadIntervalMs;
+      waitMs = slot - now;
+    }
+
+    if (waitMs > 0)
+      Thread.sleep(waitMs);
+  }
+
+  private final class Run
+  {
+    private final List<GameFile> mGames;
+    private final ExecutorService mExecutor;
+    private final ConcurrentLinkedQueue<GameFile> mQueue = new ConcurrentLinkedQueue<>();
+    private final Set<String> mRemainingIds =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger mActiveWorkers = new AtomicInteger();
+    private final AtomicInteger mFetchedGames = new AtomicInteger();
+    private volatile boolean mCancelled = false;
+
+    Run(List<GameFile> games)
+    {
+      mGames = games;
+      AtomicInteger threadNumber = new AtomicInteger();
+      mExecutor = Executors.newFixedThreadPool(mMaxConcurrentDownloads, runnable ->
+      {
+        Thread thread = new Thread(runnable, "CoverPrefetcher-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      });
+    }
+
+    void start()
+    {
+      mExecutor.execute(() ->
+      {
+        // Checking which covers are missing touches the disk for every game,
+        // so it happens here rather than on the caller's thread
+        for (GameFile game : mGames)
+        {
+          if (mCancelled)
+            return;
+
+          String gameTdbId = game.getGameTdbId();
+          if (!mRemainingIds.contains(gameTdbId) && CoverService.needsDownload(game))
+          {
+            mRemainingIds.add(gameTdbId);
+            mQueue.add(game);
+          }
+        }
+
+        // Taking the lock that cancel is called with, so that a run that has been replaced
+        // can't touch the queue file of the new one or submit work to its stopped executor
+        synchronized (CoverPrefetcher.this)
+        {
+          if (mCancelled)
+            return;
+
+          if (mQueue.isEmpty())
+          {
+            mQueueFile.delete();
+            onRunFinished(this);
+            mExecutor.shutdown();
+            return;
+          }
+
+          Log.debug("[CoverPrefetcher] Fetching " + mQueue.size() + " covers");
+          saveQueue(mRemainingIds);
+
+          mActiveWorkers.set(mMaxConcurrentDownloads);
+          try
+          {
+            for (int i = 0; i < mMaxConcurrentDownloads; i++)
+            {
+              mExecutor.execute(this::work);
+            }
+          }
+          catch (RejectedExecutionException e)
+          {
+            Log.warning("[CoverPrefetcher] Failed to start downloading: " + e.getMessage());
+            mCancelled = true;
+            onRunFinished(this);
+          }
+          mExecutor.shutdown();
+        }
+      });
+    }
+
+    private void work()
+    {
+      try
+      {
+        GameFile game;
+        while (!mCancelled && (game = mQueue.poll()) != null)
+        {
+          waitForDownloadSlot();
+          CoverService.fetchCover(game);
+
+          // Covers that couldn't be downloaded because of a network error are tried again later
+          if (!CoverService.needsDownload(game))
+            mRemainingIds.remove(game.getGameTdbId());
+          if (mFetchedGames.incrementAndGet() % PROGRESS_SAVE_INTERVAL == 0)
+            saveQueueIfCurrent();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // Cancelled
+      }
+      finally
+      {
+        if (mActiveWorkers.decrementAndGet() == 0)
+        {
+          synchronized (CoverPrefetcher.this)
+          {
+            // A cancelled run has been replaced, and the queue file now belongs to the new one
+            if (!mCancelled)
+            {
+              if (mRemainingIds.isEmpty())
+                mQueueFile.delete();
+              else
+                saveQueue(mRemainingIds);
+
+              onRunFinished(this);
+            }
+          }
+        }
+      }
+    }
+
+    private void saveQueueIfCurrent()
+    {
+      synchronized (CoverPrefetcher.this)
+      {
+        if (!mCancelled)
+          saveQueue(mRemainingIds);
+      }
+    }
+
+    void cancel()
+    {
+      synchronized (CoverPrefetcher.this)
+      {
+        mCancelled = true;
+        mExecutor.shutdownNow();
+      }
+    }
+  }
+
+  private synchronized void saveQueue(Set<String> remainingIds)
+  {
+    FileOutputStream stream = null;
+    try
+    {
+      stream = mQueueFile.startWrite();
+      BufferedWriter writer =
+              new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+      for (String gameTdbId : remainingIds)
+      {
+        writer.write(gameTdbId);
+        writer.newLine();
+      }
+      writer.flush();
+      mQueueFile.finishWrite(stream);
+    }
+    catch (IOException e)
+    {
+      Log.warning("[CoverPrefetcher] Failed to write " + mQueueFile.getBaseFile() + ": " +
+              e.getMessage());
+      mQueueFile.failWrite(stream);
+    }
+  }
+
+  private Set<String> loadQueue()
+  {
+    Set<String> remainingIds = new HashSet<>();
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(mQueueFile.openRead(), StandardCharsets.UTF_8)))
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        if (!line.isEmpty())
+          remainingIds.add(line);
+      }
+    }
+    catch (FileNotFoundException e)
+    {
+      // No prefetch was cut short
+    }
+    catch (IOException e)
+    {
+      Log.warning("[CoverPrefetcher] Failed to read " + mQueueFile.getBaseFile() + ": " +
+              e.getMessage());
+    }
+    return remainingIds;
+  }
+}
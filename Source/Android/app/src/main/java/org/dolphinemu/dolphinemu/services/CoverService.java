@@ -0,0 +1,462 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.DolphinApplication;
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.utils.Action1;
+import org.dolphinemu.dolphinemu.utils.CoverHelper;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the cover of each game in the background: a custom cover next to the game file,
+ * a cover downloaded earlier, or a cover downloaded now from GameTDB.
+ *
+ * GameTDB has a pretty close to complete collection for US/EN covers, so a download tries the
+ * disc's region first, then US, then EN. IDs that have no cover in any of them are remembered
+ * on disk for a while, and games that share an ID share a single download.
+ *
+ * What a lookup hands out is a grid-sized thumbnail of the cover rather than the cover itself.
+ */
+public final class CoverService
+{
+  private static final int THREAD_COUNT = 2;
+  private static final int TIMEOUT_MS = 10000;
+  private static final String MISSING_COVERS_FILE_NAME = "missingcovers.cache";
+  private static final String THUMBNAILS_DIRECTORY_NAME = "GameCoverThumbnails";
+  private static final String PREFETCH_QUEUE_FILE_NAME = "coverprefetch.queue";
+
+  // Keeps prefetching gentle on GameTDB, on top of the lookups made for cards being shown
+  private static final int PREFETCH_MAX_CONCURRENT_DOWNLOADS = 2;
+  private static final long PREFETCH_MIN_DOWNLOAD_INTERVAL_MS = 250;
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private static final ExecutorService executor;
+
+  // Lookups that are running or waiting to run, by game path, since custom covers are per file
+  private static final ConcurrentHashMap<String, CoverFuture> inFlight = new ConcurrentHashMap<>();
+
+  // Downloads that are running, by GameTDB ID, which is all that a downloaded cover depends on
+  private static final ConcurrentHashMap<String, FutureTask<File>> downloads =
+          new ConcurrentHashMap<>();
+
+  // Thumbnails of covers that have been found, by game path
+  private static final ConcurrentHashMap<String, File> foundCovers = new ConcurrentHashMap<>();
+
+  private static final CoverIndex coverIndex = new CoverIndex();
+
+  private static final CoverThumbnails thumbnails = new CoverThumbnails(
+          new File(DolphinApplication.getAppContext().getCacheDir(), THUMBNAILS_DIRECTORY_NAME));
+
+  private static final MissingCoverCache missingCovers = new MissingCoverCache(
+          new File(DolphinApplication.getAppContext().getCacheDir(), MISSING_COVERS_FILE_NAME));
+  private static final AtomicBoolean isSavePending = new AtomicBoolean(false);
+
+  private static final CoverPrefetcher prefetcher = new CoverPrefetcher(
+          new File(DolphinApplication.getAppContext().getCacheDir(), PREFETCH_QUEUE_FILE_NAME),
+          PREFETCH_MAX_CONCURRENT_DOWNLOADS, PREFETCH_MIN_DOWNLOAD_INTERVAL_MS);
+
+  static
+  {
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(THREAD_COUNT, runnable ->
+    {
+      Thread thread = new Thread(runnable, "CoverService-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * The result of a cover lookup, which is either the thumbnail of the cover
+   * or null if there is none.
+   */
+  public static final class CoverFuture extends FutureTask<File>
+  {
+    private final String mKey;
+    private final List<Action1<File>> mListeners = new ArrayList<>();
+
+    private CoverFuture(String key, Callable<File> lookup)
+    {
+      super(lookup);
+      mKey = key;
+    }
+
+    private static CoverFuture completed(File cover)
+    {
+      CoverFuture future = new CoverFuture(null, () -> cover);
+      future.run();
+      return future;
+    }
+
+    /**
+     * Calls the listener on the main thread once the lookup has finished.
+     */
+    public void addListener(Action1<File> listener)
+    {
+      synchronized (mListeners)
+      {
+        if (!isDone())
+        {
+          mListeners.add(listener);
+          return;
+        }
+      }
+
+      mainHandler.post(() -> listener.call(getNow()));
+    }
+
+    /**
+     * @return The thumbnail, or null if there is none or the lookup hasn't finished.
+     */
+    public File getNow()
+    {
+      if (!isDone())
+        return null;
+
+      try
+      {
+        return get();
+      }
+      catch (Exception e)
+      {
+        return null;
+      }
+    }
+
+    @Override
+    protected void done()
+    {
+      if (mKey != null)
+        inFlight.remove(mKey, this);
+
+      List<Action1<File>> listeners;
+      synchronized (mListeners)
+      {
+        listeners = new ArrayList<>(mListeners);
+        mListeners.clear();
+      }
+
+      if (!listeners.isEmpty())
+      {
+        File cover = getNow();
+        mainHandler.post(() ->
+        {
+          for (Action1<File> listener : listeners)
+          {
+            listener.call(cover);
+          }
+        });
+      }
+    }
+  }
+
+  private CoverService()
+  {
+  }
+
+  /**
+   * Starts looking for the game's cover, unless that's already happening. Never blocks, so it
+   * can be called when binding views.
+   */
+  public static CoverFuture getCover(GameFile game)
+  {
+    File cover = foundCovers.get(game.getPath());
+    if (cover != null)
+      return CoverFuture.completed(cover);
+
+    return lookUp(game, executor);
+  }
+
+  /**
+   * Like getCover, but waits for the lookup to finish, running it on the calling thread unless
+   * it is already running elsewhere.
+   */
+  static File fetchCover(GameFile game) throws InterruptedException
+  {
+    File cover = foundCovers.get(game.getPath());
+    if (cover != null)
+      return cover;
+
+    try
+    {
+      return lookUp(game, Runnable::run).get();
+    }
+    catch (ExecutionException e)
+    {
+      return null;
+    }
+  }
+
+  private static CoverFuture lookUp(GameFile game, Executor lookupExecutor)
+  {
+    String key = game.getPath();
+
+    CoverFuture future = inFlight.get(key);
+    if (future != null)
+      return future;
+
+    CoverFuture newFuture = new CoverFuture(key, () -> findCover(game));
+    future = inFlight.putIfAbsent(key, newFuture);
+    if (future != null)
+      return future;
+
+    lookupExecutor.execute(newFuture);
+    return newFuture;
+  }
+
+  /**
+   * @return true if looking up the game's cover would mean downloading it.
+   */
+  static boolean needsDownload(GameFile game)
+  {
+    String gameTdbId = game.getGameTdbId();
+    return !gameTdbId.isEmpty() && !foundCovers.containsKey(game.getPath()) &&
+            findCoverFile(game) == null && !missingCovers.isMissing(gameTdbId);
+  }
+
+  /**
+   * Starts downloading every cover of the library that hasn't been downloaded yet, replacing
+   * any prefetch that is already running. Returns right away.
+   */
+  public static void prefetchCovers(List<GameFile> games)
+  {
+    prefetcher.start(games);
+  }
+
+  /**
+   * Continues a prefetch that got cut short the last time the app ran, if there is one.
+   */
+  public static void resumeCoverPrefetch(List<GameFile> games)
+  {
+    prefetcher.resume(games);
+  }
+
+  /**
+   * Returns the custom or downloaded cover of the game at full size, or null if it has none.
+   * Doesn't download anything. The first call may need to list the folder the cover would be in.
+   */
+  public static File findCoverFile(GameFile game)
+  {
+    File customCover = coverIndex.findCustomCover(game);
+    if (customCover != null)
+      return customCover;
+
+    return game.getGameTdbId().isEmpty() ? null : coverIndex.findDownloadedCover(game);
+  }
+
+  /**
+   * Lets the service know about files in the game folders that were created, modified, moved
+   * or deleted, so that it can pick up custom covers that were added or removed.
+   */
+  public static void onGameFolderFilesChanged(Set<String> changedPaths)
+  {
+    boolean customCoversChanged = false;
+    for (String path : changedPaths)
+    {
+      if (CoverIndex.isCustomCover(path))
+      {
+        File customCover = new File(path);
+        coverIndex.onCustomCoverChanged(customCover, customCover.exists());
+        customCoversChanged = true;
+      }
+    }
+
+    if (customCoversChanged)
+      foundCovers.clear();
+  }
+
+  /**
+   * Like onGameFolderFilesChanged, but for when it isn't known which files changed.
+   */
+  public static void onGameFoldersChanged()
+  {
+    coverIndex.invalidateCustomCovers();
+    foundCovers.clear();
+  }
+
+  private static File findCover(GameFile game) throws InterruptedException
+  {
+    File existingCover = findCoverFile(game);
+    if (existingCover != null)
+      return onCoverFound(game, existingCover);
+
+    String gameTdbId = game.getGameTdbId();
+    if (gameTdbId.isEmpty() || missingCovers.isMissing(gameTdbId))
+      return null;
+
+    File cover = downloadCover(game);
+    return cover == null ? null : onCoverFound(game, cover);
+  }
+
+  /**
+   * Downloads the cover of the game, or waits for the download if one for the same GameTDB ID
+   * is already running.
+   *
+   * @return The downloaded cover at full size, or null if there is none or it couldn't be
+   * downloaded.
+   */
+  private static File downloadCover(GameFile game) throws InterruptedException
+  {
+    String gameTdbId = game.getGameTdbId();
+    FutureTask<File> download = new FutureTask<>(() -> downloadFromGameTdb(game));
+    FutureTask<File> runningDownload = downloads.putIfAbsent(gameTdbId, download);
+    if (runningDownload == null)
+    {
+      try
+      {
+        download.run();
+      }
+      finally
+      {
+        downloads.remove(gameTdbId, download);
+      }
+      runningDownload = download;
+    }
+
+    try
+    {
+      return runningDownload.get();
+    }
+    catch (ExecutionException e)
+    {
+      return null;
+    }
+  }
+
+  private static File downloadFromGameTdb(GameFile game)
+  {
+    // A download for the same ID might have finished since this lookup checked
+    String gameTdbId = game.getGameTdbId();
+    File existingCover = coverIndex.findDownloadedCover(game);
+    if (existingCover != null || missingCovers.isMissing(gameTdbId))
+      return existingCover;
+
+    File cover = new File(game.getCoverPath());
+
+    Set<String> regions = new LinkedHashSet<>();
+    Collections.addAll(regions, CoverHelper.getRegion(game), "US", "EN");
+
+    try
+    {
+      for (String region : regions)
+      {
+        if (download(CoverHelper.buildGameTDBUrl(game, region), cover))
+        {
+          coverIndex.onCoverDownloaded(cover);
+          return cover;
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      // Most likely there is no connection, which says nothing about whether the cover exists
+      Log.debug("[CoverService] Failed to download the cover of " + gameTdbId + ": " +
+              e.getMessage());
+      return null;
+    }
+
+    missingCovers.putMissing(gameTdbId);
+    scheduleSave();
+    return null;
+  }
+
+  private static File onCoverFound(GameFile game, File cover)
+  {
+    // Showing the full cover is still better than showing nothing
+    File thumbnail = thumbnails.getThumbnail(cover);
+    if (thumbnail == null)
+      thumbnail = cover;
+
+    foundCovers.put(game.getPath(), thumbnail);
+    return thumbnail;
+  }
+
+  /**
+   * @return false if the server doesn't have the file.
+   * @throws IOException if the download failed for any other reason.
+   */
+  private static boolean download(String url, File destination) throws IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MS);
+    connection.setReadTimeout(TIMEOUT_MS);
+    try
+    {
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND)
+        return false;
+      if (responseCode != HttpURLConnection.HTTP_OK)
+        throw new IOException("HTTP " + responseCode + " for " + url);
+
+      // Only written once the whole cover has arrived, so that an interrupted download never
+      // looks like a cover
+      ByteArrayOutputStream cover = new ByteArrayOutputStream();
+      try (InputStream in = connection.getInputStream())
+      {
+        byte[] buffer = new byte[16 * 1024];
+        int length;
+        while ((length = in.read(buffer)) != -1)
+        {
+          cover.write(buffer, 0, length);
+        }
+      }
+
+      AtomicFile file = new AtomicFile(destination);
+      FileOutputStream out = null;
+      try
+      {
+        out = file.startWrite();
+        cover.writeTo(out);
+        file.finishWrite(out);
+      }
+      catch (IOException e)
+      {
+        file.failWrite(out);
+        throw e;
+      }
+      return true;
+    }
+    finally
+    {
+      connection.disconnect();
+    }
+  }
+
+  private static void scheduleSave()
+  {
+    // Lookups that fail around the same time share one write
+    if (isSavePending.compareAndSet(false, true))
+    {
+      executor.execute(() ->
+      {
+        isSavePending.set(false);
+        missingCovers.save();
+      });
+    }
+  }
+}
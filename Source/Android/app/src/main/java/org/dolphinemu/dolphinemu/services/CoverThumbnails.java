@@ -0,0 +1,202 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.utils.Fnv1a;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps small copies of game covers for the game grids, so that scrolling only has to decode
+ * images of about the size they are shown at. The covers themselves are left untouched.
+ *
+ * Thumbnails are opaque JPEGs, meant to be decoded as RGB_565, which takes half the memory
+ * of the ARGB_8888 bitmaps the full size covers were decoded to.
+ *
+ * Each cover has at most one thumbnail. The thumbnail of a cover that gets replaced is deleted
+ * when the new one is written. Which thumbnail belongs to which cover is read from the directory
+ * once, so that this doesn't need to list the directory for every thumbnail it writes.
+ */
+final class CoverThumbnails
+{
+  // The size of the cards on the TV screen, which are the largest cards
+  static final int MAX_WIDTH = 240;
+  static final int MAX_HEIGHT = 336;
+
+  private static final int JPEG_QUALITY = 90;
+
+  // Thumbnails of the same cover are created one at a time
+  private static final int LOCK_COUNT = 16;
+
+  private final File mDirectory;
+  private final Object[] mLocks = new Object[LOCK_COUNT];
+
+  // The name of the thumbnail of each cover, by thumbnail prefix, or null if not read yet
+  private Map<String, String> mThumbnailNames;
+
+  CoverThumbnails(File directory)
+  {
+    mDirectory = directory;
+    for (int i = 0; i < LOCK_COUNT; i++)
+    {
+      mLocks[i] = new Object();
+    }
+  }
+
+  /**
+   * Returns the thumbnail of the cover, creating it first if needed.
+   *
+   * @return null if the cover couldn't be decoded or the thumbnail couldn't be written.
+   */
+  File getThumbnail(File cover)
+  {
+    // Named after the path and the state of the cover, so that a cover being replaced gets a new
+    // thumbnail, and the old one can be found by its path
+    String prefix = getThumbnailPrefix(cover);
+    File thumbnail = new File(mDirectory, prefix + getThumbnailSuffix(cover));
+    if (thumbnail.exists())
+      return thumbnail;
+
+    synchronized (mLocks[(prefix.hashCode() & Integer.MAX_VALUE) % LOCK_COUNT])
+    {
+      // Another thread might have created it while this one was waiting
+      if (thumbnail.exists())
+        return thumbnail;
+
+      if (!createThumbnail(cover, thumbnail))
+        return null;
+
+      String oldName = putThumbnailName(prefix, thumbnail.getName());
+      if (oldName != null && !oldName.equals(thumbnail.getName()))
+        new File(mDirectory, oldName).delete();
+      return thumbnail;
+    }
+  }
+
+  private boolean createThumbnail(File cover, File thumbnail)
+  {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(cover.getPath(), options);
+    if (options.outWidth <= 0 || options.outHeight <= 0)
+      return false;
+
+    // Never scale up, GameTDB covers are smaller than the largest cards
+    float scale = Math.min(1.0f, Math.min((float) MAX_WIDTH / options.outWidth,
+            (float) MAX_HEIGHT / options.outHeight));
+    int width = Math.max(1, Math.round(options.outWidth * scale));
+    int height = Math.max(1, Math.round(options.outHeight * scale));
+
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, width, height);
+    Bitmap bitmap = BitmapFactory.decodeFile(cover.getPath(), options);
+    if (bitmap == null)
+      return false;
+
+    Bitmap scaled = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+    new Canvas(scaled).drawBitmap(bitmap, null, new Rect(0, 0, width, height),
+            new Paint(Paint.FILTER_BITMAP_FLAG));
+    bitmap.recycle();
+
+    // Compressed before anything is written, so that a thumbnail file is never left half written
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    scaled.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, jpeg);
+    scaled.recycle();
+
+    AtomicFile file = new AtomicFile(thumbnail);
+    FileOutputStream out = null;
+    try
+    {
+      out = file.startWrite();
+      jpeg.writeTo(out);
+      file.finishWrite(out);
+      return true;
+    }
+    catch (IOException e)
+    {
+      Log.warning("[CoverThumbnails] Failed to write " + thumbnail + ": " + e.getMessage());
+      file.failWrite(out);
+      return false;
+    }
+  }
+
+  /**
+   * Remembers the name of the thumbnail of a cover.
+   *
+   * @return The name of the cover's previous thumbnail, or null if there was none.
+   */
+  private synchronized String putThumbnailName(String prefix, String name)
+  {
+    if (mThumbnailNames == null)
+      mThumbnailNames = readThumbnailNames();
+    return mThumbnailNames.put(prefix, name);
+  }
+
+  private Map<String, String> readThumbnailNames()
+  {
+    Map<String, String> thumbnailNames = new HashMap<>();
+    File[] thumbnails = mDirectory.listFiles();
+    if (thumbnails == null)
+      return thumbnailNames;
+
+    for (File thumbnail : thumbnails)
+    {
+      String name = thumbnail.getName();
+      int prefixEnd = name.indexOf('-') + 1;
+      if (prefixEnd == 0 || !name.endsWith(".jpg"))
+        continue;
+
+      // A cover should only have one thumbnail, so extra ones are left over from a crash.
+      // The newest one is the one that belongs to the current cover.
+      String prefix = name.substring(0, prefixEnd);
+      String otherName = thumbnailNames.get(prefix);
+      if (otherName != null)
+      {
+        File otherThumbnail = new File(mDirectory, otherName);
+        if (otherThumbnail.lastModified() > thumbnail.lastModified())
+        {
+          thumbnail.delete();
+          continue;
+        }
+        otherThumbnail.delete();
+      }
+      thumbnailNames.put(prefix, name);
+    }
+    return thumbnailNames;
+  }
+
+  /**
+   * @return The largest power of two that the image can be subsampled by while staying at
+   * least as large as the target size.
+   */
+  private static int getSampleSize(int width, int height, int targetWidth, int targetHeight)
+  {
+    int sampleSize = 1;
+    while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight)
+    {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private static String getThumbnailPrefix(File cover)
+  {
+    return Long.toHexString(Fnv1a.hash(cover.getPath())) + '-';
+  }
+
+  private static String getThumbnailSuffix(File cover)
+  {
+    return Long.toHexString(Fnv1a.hash(cover.lastModified() + "-" + cover.length())) + ".jpg";
+  }
+}
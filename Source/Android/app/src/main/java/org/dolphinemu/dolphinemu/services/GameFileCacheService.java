@@ -1,88 +1,82 @@
 package org.dolphinemu.dolphinemu.services;
 
-import android.app.IntentService;
 import android.content.Context;
 import android.content.Intent;
 import android.support.v4.content.LocalBroadcastManager;
 
 import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.model.GameFileCache;
+import org.dolphinemu.dolphinemu.model.GameFileSnapshot;
+import org.dolphinemu.dolphinemu.model.LibrarySnapshotFile;
+import org.dolphinemu.dolphinemu.model.TitleDatabase;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
 import org.dolphinemu.dolphinemu.utils.AfterDirectoryInitializationRunner;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * A service that loads game list data on a separate thread.
+ * Loads game list data on a separate thread.
  */
-public final class GameFileCacheService extends IntentService
+public final class GameFileCacheService
 {
   public static final String BROADCAST_ACTION = "org.dolphinemu.dolphinemu.GAME_FILE_CACHE_UPDATED";
 
-  private static final String ACTION_LOAD = "org.dolphinemu.dolphinemu.LOAD_GAME_FILE_CACHE";
-  private static final String ACTION_RESCAN = "org.dolphinemu.dolphinemu.RESCAN_GAME_FILE_CACHE";
+  private static final String LIBRARY_SNAPSHOT_FILE_NAME = "gamelist.snapshot";
 
-  private static GameFileCache gameFileCache = null;
-  private static AtomicReference<GameFile[]> gameFiles = new AtomicReference<>(new GameFile[]{});
+  private static final GameLibraryScheduler scheduler = new GameLibraryScheduler();
+
+  private static volatile GameFileCache gameFileCache = null;
+  private static GameFolderWatcher folderWatcher = null;
+  private static LibrarySnapshotFile librarySnapshotFile = null;
+  private static AtomicReference<GameFileSnapshot> gameFileSnapshot =
+          new AtomicReference<>(GameFileSnapshot.EMPTY);
   private static AtomicBoolean hasLoadedCache = new AtomicBoolean(false);
   private static AtomicBoolean hasScannedLibrary = new AtomicBoolean(false);
+  private static AtomicBoolean isScanInProgress = new AtomicBoolean(false);
 
-  public GameFileCacheService()
+  private GameFileCacheService()
   {
-    // Superclass constructor is called to name the thread on which this service executes.
-    super("GameFileCacheService");
   }
 
   public static List<GameFile> getGameFilesForPlatform(Platform platform)
   {
-    GameFile[] allGames = gameFiles.get();
-    ArrayList<GameFile> platformGames = new ArrayList<>();
-    for (GameFile game : allGames)
-    {
-      if (Platform.fromNativeInt(game.getPlatform()) == platform)
-      {
-        platformGames.add(game);
-      }
-    }
-    return platformGames;
+    return gameFileSnapshot.get().getGamesForPlatform(platform);
   }
 
   public static GameFile getGameFileByGameId(String gameId)
   {
-    GameFile[] allGames = gameFiles.get();
-    for (GameFile game : allGames)
-    {
-      if (game.getGameId().equals(gameId))
-      {
-        return game;
-      }
-    }
-    return null;
+    return gameFileSnapshot.get().getGameByGameId(gameId);
   }
 
   public static GameFile findSecondDisc(GameFile game)
   {
-    GameFile matchWithoutRevision = null;
+    return gameFileSnapshot.get().findSecondDisc(game);
+  }
 
-    GameFile[] allGames = gameFiles.get();
-    for (GameFile otherGame : allGames)
-    {
-      if (game.getGameId().equals(otherGame.getGameId()) &&
-              game.getDiscNumber() != otherGame.getDiscNumber())
-      {
-        if (game.getRevision() == otherGame.getRevision())
-          return otherGame;
-        else
-          matchWithoutRevision = otherGame;
-      }
-    }
+  /**
+   * Searches the titles, companies and game IDs of the games for the given platform.
+   * An empty query returns all games for the platform.
+   */
+  public static List<GameFile> searchGameFilesForPlatform(String query, Platform platform)
+  {
+    GameFileSnapshot snapshot = gameFileSnapshot.get();
+    if (query == null || query.isEmpty())
+      return snapshot.getGamesForPlatform(platform);
+    return snapshot.search(query, platform);
+  }
 
-    return matchWithoutRevision;
+  /**
+   * Returns the most recently published state of the game library. The returned object is
+   * immutable, so callers that need several consistent lookups should hold on to it.
+   */
+  public static GameFileSnapshot getSnapshot()
+  {
+    return gameFileSnapshot.get();
   }
 
   public static boolean hasLoadedCache()
@@ -95,85 +89,245 @@ public final class GameFileCacheService extends IntentService
     return hasScannedLibrary.get();
   }
 
-  private static void startService(Context context, String action)
+  /**
+   * Returns true while a rescan is running. Broadcasts sent during that time carry a partial
+   * game list, and another broadcast follows once the scan has finished.
+   */
+  public static boolean isScanInProgress()
+  {
+    return isScanInProgress.get();
+  }
+
+  /**
+   * @return The number of library jobs waiting to run.
+   */
+  public static int getPendingJobCount()
+  {
+    return scheduler.getQueueDepth();
+  }
+
+  /**
+   * @return The time between requesting and finishing the most recent library job.
+   */
+  public static long getLastJobLatencyMs()
+  {
+    return scheduler.getLastJobLatencyMs();
+  }
+
+  public static long getAverageJobLatencyMs()
   {
-    Intent intent = new Intent(context, GameFileCacheService.class);
-    intent.setAction(action);
-    context.startService(intent);
+    return scheduler.getAverageJobLatencyMs();
+  }
+
+  /**
+   * @return The number of library jobs that have finished, which the average latency is over.
+   */
+  public static int getCompletedJobCount()
+  {
+    return scheduler.getCompletedJobCount();
+  }
+
+  /**
+   * @return How many rescan requests were dropped because a rescan was already queued.
+   */
+  public static int getCoalescedRescanCount()
+  {
+    return scheduler.getCoalescedRescanCount();
   }
 
   /**
    * Asynchronously loads the game file cache from disk without checking
    * which games are present on the file system.
+   *
+   * On a cold start, the game list saved by the previous run gets published first, without
+   * waiting for directory initialization. Its games have no banners, and they are replaced
+   * as soon as the game file cache has been loaded.
    */
   public static void startLoad(Context context)
   {
+    Context appContext = context.getApplicationContext();
+    scheduler.submit(() -> restoreLibrarySnapshot(appContext));
     new AfterDirectoryInitializationRunner().run(context,
-            () -> startService(context, ACTION_LOAD));
+            () -> scheduler.submit(() -> load(appContext)));
   }
 
   /**
    * Asynchronously scans for games in the user's configured folders,
    * updating the game file cache with the results.
    * If startLoad hasn't been called before this, this has no effect.
+   *
+   * Requests made while a rescan is already queued are merged into it,
+   * and a rescan that is already running gets replaced by the new one.
    */
   public static void startRescan(Context context)
   {
+    Context appContext = context.getApplicationContext();
     new AfterDirectoryInitializationRunner().run(context,
-            () -> startService(context, ACTION_RESCAN));
+            () -> scheduler.submitRescan(() -> rescan(appContext)));
   }
 
+  /**
+   * Adds a game to the cache, or gets the cached game for the path.
+   * This doesn't wait for a running rescan to finish.
+   */
   public static GameFile addOrGet(String gamePath)
   {
-    // The existence of this one function, which is called from one
-    // single place, forces us to use synchronization in onHandleIntent...
-    // A bit annoying, but should be good enough for now
-    synchronized (gameFileCache)
+    return gameFileCache.addOrGetWithPriority(gamePath);
+  }
+
+  private static void restoreLibrarySnapshot(Context context)
+  {
+    // Only needed until the game file cache has been loaded for the first time
+    if (gameFileCache != null || gameFileSnapshot.get().size() != 0)
+      return;
+
+    GameFile[] gameFiles = getLibrarySnapshotFile(context).load();
+    if (gameFiles == null || gameFiles.length == 0)
+      return;
+
+    gameFileSnapshot.set(new GameFileSnapshot(gameFiles, null));
+    sendBroadcast(context);
+  }
+
+  private static LibrarySnapshotFile getLibrarySnapshotFile(Context context)
+  {
+    // Only used on the scheduler's thread
+    if (librarySnapshotFile == null)
     {
-      return gameFileCache.addOrGet(gamePath);
+      librarySnapshotFile = new LibrarySnapshotFile(
+              new File(context.getCacheDir(), LIBRARY_SNAPSHOT_FILE_NAME));
     }
+    return librarySnapshotFile;
+  }
+
+  private static void saveLibrarySnapshot(Context context)
+  {
+    List<GameFile> gameFiles = gameFileSnapshot.get().getAllGames();
+    getLibrarySnapshotFile(context).save(gameFiles.toArray(new GameFile[gameFiles.size()]));
   }
 
-  @Override
-  protected void onHandleIntent(Intent intent)
+  private static void load(Context context)
   {
     // Load the game list cache if it isn't already loaded, otherwise do nothing
-    if (ACTION_LOAD.equals(intent.getAction()) && gameFileCache == null)
+    if (gameFileCache != null)
+      return;
+
+    // Only needs to parse the title lists after they have been updated. Loaded before the cache,
+    // so that the games get the titles from the database from the first snapshot on
+    TitleDatabase.load(context);
+
+    GameFileCache temp =
+            new GameFileCache(context.getCacheDir() + File.separator + "gamelist.cache");
+    temp.load();
+    gameFileCache = temp;
+    updateGameFileArray();
+    hasLoadedCache.set(true);
+    sendBroadcast(context);
+    saveLibrarySnapshot(context);
+
+    CoverService.resumeCoverPrefetch(gameFileSnapshot.get().getAllGames());
+
+    watchGameFolders(context);
+  }
+
+  /**
+   * Keeps the cache up to date with changes made to the game folders while the app is running,
+   * by adding and removing only the affected files rather than rescanning.
+   */
+  private static void watchGameFolders(Context context)
+  {
+    if (folderWatcher == null)
     {
-      GameFileCache temp = new GameFileCache(getCacheDir() + File.separator + "gamelist.cache");
-      synchronized (temp)
+      folderWatcher = new GameFolderWatcher(new GameFolderWatcher.Listener()
       {
-        gameFileCache = temp;
-        gameFileCache.load();
-        updateGameFileArray();
-        hasLoadedCache.set(true);
-        sendBroadcast();
-      }
+        @Override
+        public void onFilesChanged(Set<String> changedPaths)
+        {
+          CoverService.onGameFolderFilesChanged(changedPaths);
+          scheduler.submit(() -> applyFileChanges(context, changedPaths));
+        }
+
+        @Override
+        public void onRescanNeeded()
+        {
+          CoverService.onGameFoldersChanged();
+          scheduler.submitRescan(() -> rescan(context));
+        }
+      });
     }
 
+    folderWatcher.setFolders(GameFileCache.getGameFolders(context));
+  }
+
+  private static void applyFileChanges(Context context, Set<String> changedPaths)
+  {
+    if (gameFileCache.applyFileChanges(changedPaths))
+    {
+      updateGameFileArray();
+      sendBroadcast(context);
+      saveLibrarySnapshot(context);
+    }
+  }
+
+  private static void rescan(Context context)
+  {
+    if (gameFileCache == null)
+      return;
+
     // Rescan the file system and update the game list cache with the results
-    if (ACTION_RESCAN.equals(intent.getAction()) && gameFileCache != null)
+    isScanInProgress.set(true);
+
+    // Picks up changes to the user's title list and to the language settings
+    if (TitleDatabase.load(context))
     {
-      synchronized (gameFileCache)
-      {
-        boolean changed = gameFileCache.scanLibrary(this);
-        if (changed)
-          updateGameFileArray();
-        hasScannedLibrary.set(true);
-        sendBroadcast();
-      }
+      updateGameFileArray();
+      sendBroadcast(context);
     }
+
+    // Publish newly found games in batches, so that a long first scan
+    // doesn't leave the game list empty until it has finished
+    boolean changed = gameFileCache.scanLibrary(context, (gamesParsed, gamesTotal) ->
+    {
+      updateGameFileArray();
+      sendBroadcast(context);
+    });
+
+    // A rescan that got superseded leaves the rest of the work to the one that replaced it
+    if (Thread.currentThread().isInterrupted())
+      return;
+
+    if (changed)
+      updateGameFileArray();
+
+    isScanInProgress.set(false);
+    hasScannedLibrary.set(true);
+    sendBroadcast(context);
+    saveLibrarySnapshot(context);
+
+    CoverService.prefetchCovers(gameFileSnapshot.get().getAllGames());
+
+    // The scan may have been started because a game folder was added or removed
+    watchGameFolders(context);
   }
 
-  private void updateGameFileArray()
+  private static void updateGameFileArray()
   {
     GameFile[] gameFilesTemp = gameFileCache.getAllGames();
+
+    // Resolved here rather than when the games get created, so that the games that stay in the
+    // cache get the titles of the current title lists and settings too
+    TitleDatabase titleDatabase = TitleDatabase.get();
+    for (GameFile game : gameFilesTemp)
+    {
+      game.setDatabaseTitle(titleDatabase == null ? null : titleDatabase.getTitle(game));
+    }
+
     Arrays.sort(gameFilesTemp, (lhs, rhs) -> lhs.getTitle().compareToIgnoreCase(rhs.getTitle()));
-    gameFiles.set(gameFilesTemp);
+    gameFileSnapshot.set(new GameFileSnapshot(gameFilesTemp, gameFileSnapshot.get()));
   }
 
-  private void sendBroadcast()
+  private static void sendBroadcast(Context context)
   {
-    LocalBroadcastManager.getInstance(this).sendBroadcast(new Intent(BROADCAST_ACTION));
+    LocalBroadcastManager.getInstance(context).sendBroadcast(new Intent(BROADCAST_ACTION));
   }
 }
@@ -0,0 +1,153 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches the game folders for files being added, removed or renamed, and reports the affected
+ * paths in debounced batches. Like the library scan, only the top level of each folder is watched.
+ */
+final class GameFolderWatcher
+{
+  interface Listener
+  {
+    /**
+     * Called with the paths that changed since the previous call.
+     */
+    void onFilesChanged(Set<String> changedPaths);
+
+    /**
+     * Called instead of onFilesChanged when too much happened to handle file by file,
+     * or when a watched folder itself went away.
+     */
+    void onRescanNeeded();
+  }
+
+  // Wait for this long without new events before reporting, so that copying many files at once
+  // only leads to a single update
+  private static final long DEBOUNCE_DELAY_MS = 1000;
+
+  // Above this many changed files in one batch, a fingerprint rescan is cheaper
+  private static final int MAX_CHANGED_PATHS = 64;
+
+  // Creating a file isn't interesting until its contents have been written
+  private static final int EVENT_MASK = FileObserver.CLOSE_WRITE | FileObserver.DELETE |
+          FileObserver.MOVED_FROM | FileObserver.MOVED_TO | FileObserver.DELETE_SELF |
+          FileObserver.MOVE_SELF;
+
+  private final Listener mListener;
+  private final Handler mHandler;
+  private final Map<String, FileObserver> mObservers = new HashMap<>();
+
+  private final Object mPendingLock = new Object();
+  private Set<String> mPendingPaths = new HashSet<>();
+  private boolean mRescanNeeded = false;
+
+  private final Runnable mFlush = this::flush;
+
+  GameFolderWatcher(Listener listener)
+  {
+    mListener = listener;
+
+    HandlerThread thread = new HandlerThread("GameFolderWatcher");
+    thread.start();
+    mHandler = new Handler(thread.getLooper());
+  }
+
+  /**
+   * Makes the watched folders match the given set, starting and stopping observers as needed.
+   */
+  synchronized void setFolders(Set<String> folderPaths)
+  {
+    List<String> removedFolders = new ArrayList<>();
+    for (String folderPath : mObservers.keySet())
+    {
+      if (!folderPaths.contains(folderPath))
+        removedFolders.add(folderPath);
+    }
+    for (String folderPath : removedFolders)
+    {
+      mObservers.remove(folderPath).stopWatching();
+    }
+
+    for (String folderPath : folderPaths)
+    {
+      if (!mObservers.containsKey(folderPath))
+      {
+        FileObserver observer = new FolderObserver(folderPath);
+        observer.startWatching();
+        mObservers.put(folderPath, observer);
+      }
+    }
+  }
+
+  private final class FolderObserver extends FileObserver
+  {
+    private final String mFolderPath;
+
+    FolderObserver(String folderPath)
+    {
+      super(folderPath, EVENT_MASK);
+      mFolderPath = folderPath;
+    }
+
+    @Override
+    public void onEvent(int event, String path)
+    {
+      event &= FileObserver.ALL_EVENTS;
+      if (event == 0)
+        return;
+
+      synchronized (mPendingLock)
+      {
+        if ((event & (FileObserver.DELETE_SELF | FileObserver.MOVE_SELF)) != 0 || path == null)
+          mRescanNeeded = true;
+        else if (!mRescanNeeded)
+          mPendingPaths.add(mFolderPath + File.separator + path);
+
+        if (mPendingPaths.size() > MAX_CHANGED_PATHS)
+        {
+          mRescanNeeded = true;
+          mPendingPaths.clear();
+        }
+      }
+
+      mHandler.removeCallbacks(mFlush);
+      mHandler.postDelayed(mFlush, DEBOUNCE_DELAY_MS);
+    }
+  }
+
+  private void flush()
+  {
+    Set<String> changedPaths;
+    boolean rescanNeeded;
+    synchronized (mPendingLock)
+    {
+      changedPaths = mPendingPaths;
+      rescanNeeded = mRescanNeeded;
+      mPendingPaths = new HashSet<>();
+      mRescanNeeded = false;
+    }
+
+    if (rescanNeeded)
+    {
+      Log.debug("[GameFolderWatcher] Too many changes, falling back to a rescan");
+      mListener.onRescanNeeded();
+    }
+    else if (!changedPaths.isEmpty())
+    {
+      mListener.onFilesChanged(changedPaths);
+    }
+  }
+}
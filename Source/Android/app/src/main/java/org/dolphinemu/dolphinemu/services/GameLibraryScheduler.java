@@ -0,0 +1,157 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.os.SystemClock;
+
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs game library jobs one at a time on a dedicated background thread.
+ *
+ * Rescans are special: asking for a rescan while one is already waiting to run does nothing,
+ * and asking for one while a rescan is running interrupts the running one, since its result
+ * is about to be replaced anyway. Scans are expected to check for interruption regularly.
+ */
+final class GameLibraryScheduler
+{
+  private final ThreadPoolExecutor mExecutor = new ThreadPoolExecutor(1, 1, 0L,
+          TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable ->
+  {
+    Thread thread = new Thread(runnable, "GameLibraryScheduler");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final class RescanTask extends FutureTask<Void>
+  {
+    RescanTask(Runnable rescan)
+    {
+      super(rescan, null);
+    }
+
+    @Override
+    public void run()
+    {
+      onRescanStarted(this);
+      try
+      {
+        super.run();
+      }
+      finally
+      {
+        onRescanFinished(this);
+      }
+    }
+  }
+
+  private RescanTask mPendingRescan;
+  private RescanTask mRunningRescan;
+
+  private final AtomicInteger mCompletedJobs = new AtomicInteger();
+  private final AtomicInteger mCoalescedRescans = new AtomicInteger();
+  private final AtomicLong mLastJobLatencyMs = new AtomicLong();
+  private final AtomicLong mTotalJobLatencyMs = new AtomicLong();
+
+  /**
+   * Queues a job that always runs, in the order it was submitted.
+   */
+  public void submit(Runnable job)
+  {
+    mExecutor.execute(timed(job));
+  }
+
+  /**
+   * Queues a rescan, unless one is already queued. A rescan that is currently running is
+   * cancelled and superseded by the new one.
+   */
+  public synchronized void submitRescan(Runnable rescan)
+  {
+    if (mPendingRescan != null)
+    {
+      mCoalescedRescans.incrementAndGet();
+      return;
+    }
+
+    if (mRunningRescan != null)
+    {
+      Log.debug("[GameLibraryScheduler] Superseding the running rescan");
+      mRunningRescan.cancel(true);
+    }
+
+    mPendingRescan = new RescanTask(timed(rescan));
+    mExecutor.execute(mPendingRescan);
+  }
+
+  private synchronized void onRescanStarted(RescanTask rescan)
+  {
+    if (mPendingRescan == rescan)
+      mPendingRescan = null;
+    mRunningRescan = rescan;
+  }
+
+  private synchronized void onRescanFinished(RescanTask rescan)
+  {
+    if (mRunningRescan == rescan)
+      mRunningRescan = null;
+  }
+
+  private Runnable timed(Runnable job)
+  {
+    long submitTime = SystemClock.elapsedRealtime();
+    return () ->
+    {
+      try
+      {
+        job.run();
+      }
+      finally
+      {
+        long latency = SystemClock.elapsedRealtime() - submitTime;
+        mLastJobLatencyMs.set(latency);
+        mTotalJobLatencyMs.addAndGet(latency);
+        mCompletedJobs.incrementAndGet();
+      }
+    };
+  }
+
+  /**
+   * @return The number of jobs that are waiting to run, not counting the running one.
+   */
+  public int getQueueDepth()
+  {
+    return mExecutor.getQueue().size();
+  }
+
+  /**
+   * @return The time between submitting and finishing the most recent job.
+   */
+  public long getLastJobLatencyMs()
+  {
+    return mLastJobLatencyMs.get();
+  }
+
+  public long getAverageJobLatencyMs()
+  {
+    int completedJobs = mCompletedJobs.get();
+    return completedJobs == 0 ? 0 : mTotalJobLatencyMs.get() / completedJobs;
+  }
+
+  public int getCompletedJobCount()
+  {
+    return mCompletedJobs.get();
+  }
+
+  /**
+   * @return The number of rescan requests that were merged into an already queued rescan.
+   */
+  public int getCoalescedRescanCount()
+  {
+    return mCoalescedRescans.get();
+  }
+}
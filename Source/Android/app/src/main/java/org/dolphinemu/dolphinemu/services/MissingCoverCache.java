@@ -0,0 +1,124 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Remembers which GameTDB IDs had no cover on the server, so that they aren't requested again
+ * every time the app starts. Entries expire after a while, since covers do get added.
+ */
+final class MissingCoverCache
+{
+  private static final int FILE_VERSION = 1;
+  private static final long TIME_TO_LIVE_MS = 7L * 24 * 60 * 60 * 1000;
+
+  private final AtomicFile mFile;
+  private Map<String, Long> mMissingSince;
+
+  MissingCoverCache(File file)
+  {
+    mFile = new AtomicFile(file);
+  }
+
+  /**
+   * @return true if the ID was found to be missing recently enough to not try again yet.
+   */
+  synchronized boolean isMissing(String gameTdbId)
+  {
+    Long missingSince = getEntries().get(gameTdbId);
+    return missingSince != null && System.currentTimeMillis() - missingSince < TIME_TO_LIVE_MS;
+  }
+
+  synchronized void putMissing(String gameTdbId)
+  {
+    getEntries().put(gameTdbId, System.currentTimeMillis());
+  }
+
+  private Map<String, Long> getEntries()
+  {
+    if (mMissingSince == null)
+      mMissingSince = load();
+    return mMissingSince;
+  }
+
+  private Map<String, Long> load()
+  {
+    Map<String, Long> entries = new HashMap<>();
+    long now = System.currentTimeMillis();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(mFile.openRead())))
+    {
+      if (in.readInt() != FILE_VERSION)
+        return entries;
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        String gameTdbId = in.readUTF();
+        long missingSince = in.readLong();
+        if (now - missingSince < TIME_TO_LIVE_MS)
+          entries.put(gameTdbId, missingSince);
+      }
+    }
+    catch (FileNotFoundException e)
+    {
+      // No cover has been missing yet
+    }
+    catch (IOException e)
+    {
+      Log.warning("[MissingCoverCache] Failed to read " + mFile.getBaseFile() + ": " +
+              e.getMessage());
+      entries.clear();
+    }
+    return entries;
+  }
+
+  /**
+   * Writes the entries that haven't expired yet to disk.
+   */
+  synchronized void save()
+  {
+    Map<String, Long> entries = getEntries();
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext())
+    {
+      if (now - iterator.next().getValue() >= TIME_TO_LIVE_MS)
+        iterator.remove();
+    }
+
+    FileOutputStream stream = null;
+    try
+    {
+      stream = mFile.startWrite();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      out.writeInt(FILE_VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Long> entry : entries.entrySet())
+      {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue());
+      }
+      out.flush();
+      mFile.finishWrite(stream);
+    }
+    catch (IOException e)
+    {
+      Log.warning("[MissingCoverCache] Failed to write " + mFile.getBaseFile() + ": " +
+              e.getMessage());
+      mFile.failWrite(stream);
+    }
+  }
+}
@@ -0,0 +1,547 @@
+package org.dolphinemu.dolphinemu.services;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.AtomicFile;
+
+import org.dolphinemu.dolphinemu.DolphinApplication;
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.utils.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records when and for how long each game is played, and keeps a per-game summary of it in
+ * memory so that game lists can be sorted by it without touching the disk.
+ *
+ * Every launch and every stretch of play is appended to a log as one line. Once the log has
+ * grown long enough, its contents are folded into a summary file and a new log is started.
+ * Each log has a generation number, and the summary says which generation it covers up to,
+ * so being killed halfway through folding never counts a session twice. A line that got cut
+ * off by a crash is ignored.
+ *
+ * The disk is only touched on a background thread, so recording never blocks the caller.
+ */
+public final class PlaySessionStore
+{
+  public static final String BROADCAST_ACTION = "org.dolphinemu.dolphinemu.PLAY_STATS_UPDATED";
+
+  public static final int SORT_BY_TITLE = 0;
+  public static final int SORT_BY_LAST_PLAYED = 1;
+  public static final int SORT_BY_PLAY_TIME = 2;
+
+  private static final String SORT_ORDER_PREFERENCE = "gameListSortOrder";
+
+  private static final String DIRECTORY_NAME = "PlaySessions";
+  private static final String SUMMARY_FILE_NAME = "summary";
+  private static final String LOG_FILE_PREFIX = "log.";
+
+  // Fold the log into the summary after this many records
+  private static final int COMPACTION_INTERVAL = 100;
+
+  private static final char RECORD_LAUNCH = 'L';
+  private static final char RECORD_PLAYED = 'P';
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable ->
+  {
+    Thread thread = new Thread(runnable, "PlaySessionStore");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+
+  private static final File directory =
+          new File(DolphinApplication.getAppContext().getFilesDir(), DIRECTORY_NAME);
+
+  // Read from any thread, only modified on the executor's thread
+  private static final Map<String, PlayStats> playStats = new ConcurrentHashMap<>();
+
+  // Only used on the executor's thread
+  private static long generation = 0;
+  private static int recordsSinceCompaction = 0;
+  private static FileOutputStream logStream = null;
+
+  /**
+   * How much a game has been played. Immutable.
+   */
+  public static final class PlayStats
+  {
+    private final long mLastPlayedMs;
+    private final long mTotalPlayTimeMs;
+    private final int mLaunchCount;
+
+    private PlayStats(long lastPlayedMs, long totalPlayTimeMs, int launchCount)
+    {
+      mLastPlayedMs = lastPlayedMs;
+      mTotalPlayTimeMs = totalPlayTimeMs;
+      mLaunchCount = launchCount;
+    }
+
+    /**
+     * @return The wall clock time the game was last launched or played, in milliseconds.
+     */
+    public long getLastPlayedMs()
+    {
+      return mLastPlayedMs;
+    }
+
+    public long getTotalPlayTimeMs()
+    {
+      return mTotalPlayTimeMs;
+    }
+
+    public int getLaunchCount()
+    {
+      return mLaunchCount;
+    }
+  }
+
+  /**
+   * Tracks the time played in one run of a game. Only the time between resume and pause counts.
+   */
+  public static final class Session
+  {
+    private final String mPath;
+    private long mResumeTime = -1;
+
+    private Session(String path)
+    {
+      mPath = path;
+    }
+
+    public synchronized void resume()
+    {
+      if (mResumeTime < 0)
+        mResumeTime = SystemClock.elapsedRealtime();
+    }
+
+    public synchronized void pause()
+    {
+      if (mResumeTime < 0)
+        return;
+
+      long playTimeMs = SystemClock.elapsedRealtime() - mResumeTime;
+      mResumeTime = -1;
+      record(RECORD_PLAYED, System.currentTimeMillis(), playTimeMs, mPath);
+    }
+  }
+
+  private PlaySessionStore()
+  {
+  }
+
+  /**
+   * Starts reading the play history in the background. Until that has finished, every game
+   * looks like it has never been played. Needs to be called once, before anything is recorded.
+   */
+  public static void init()
+  {
+    executor.execute(PlaySessionStore::load);
+  }
+
+  /**
+   * Starts tracking a run of the game at the given path. The session starts out paused.
+   *
+   * @param isNewLaunch false if this continues a run that the system interrupted, which
+   *                    shouldn't count as launching the game again.
+   */
+  public static Session startSession(String path, boolean isNewLaunch)
+  {
+    if (isNewLaunch)
+      record(RECORD_LAUNCH, System.currentTimeMillis(), 0, path);
+    return new Session(path);
+  }
+
+  /**
+   * @return How much the game at the path has been played, or null if it never has been.
+   */
+  public static PlayStats getPlayStats(String path)
+  {
+    return playStats.get(path);
+  }
+
+  /**
+   * @return The order the game lists are shown in, one of the SORT_BY_ constants.
+   */
+  public static int getSortOrder(Context context)
+  {
+    SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+    return preferences.getInt(SORT_ORDER_PREFERENCE, SORT_BY_TITLE);
+  }
+
+  public static void setSortOrder(Context context, int sortOrder)
+  {
+    SharedPreferences.Editor editor =
+            PreferenceManager.getDefaultSharedPreferences(context).edit();
+    editor.putInt(SORT_ORDER_PREFERENCE, sortOrder);
+    editor.apply();
+  }
+
+  /**
+   * Returns the games in the given order. Ties, like games that have never been played,
+   * keep the order they were passed in, which is by title for the lists of the game library.
+   *
+   * @param sortOrder One of the SORT_BY_ constants.
+   */
+  public static List<GameFile> sort(List<GameFile> games, int sortOrder)
+  {
+    switch (sortOrder)
+    {
+      case SORT_BY_LAST_PLAYED:
+        return sortByLastPlayed(games);
+      case SORT_BY_PLAY_TIME:
+        return sortByPlayTime(games);
+      default:
+        return games;
+    }
+  }
+
+  /**
+   * Returns the games ordered by when they were last played, most recent first.
+   * Games that have never been played keep their order at the end.
+   */
+  public static List<GameFile> sortByLastPlayed(List<GameFile> games)
+  {
+    return sortDescending(games, false);
+  }
+
+  /**
+   * Returns the games ordered by their total play time, longest first.
+   * Games that have never been played keep their order at the end.
+   */
+  public static List<GameFile> sortByPlayTime(List<GameFile> games)
+  {
+    return sortDescending(games, true);
+  }
+
+  private static List<GameFile> sortDescending(List<GameFile> games, boolean byPlayTime)
+  {
+    // Read every key once up front, since the stats may change while sorting
+    int size = games.size();
+    long[] keys = new long[size];
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++)
+    {
+      PlayStats stats = playStats.get(games.get(i).getPath());
+      keys[i] = stats == null ? -1 :
+              byPlayTime ? stats.getTotalPlayTimeMs() : stats.getLastPlayedMs();
+      order[i] = i;
+    }
+
+    Arrays.sort(order, (lhs, rhs) -> Long.compare(keys[rhs], keys[lhs]));
+
+    List<GameFile> sortedGames = new ArrayList<>(size);
+    for (int index : order)
+    {
+      sortedGames.add(games.get(index));
+    }
+    return sortedGames;
+  }
+
+  private static void record(char type, long timeMs, long playTimeMs, String path)
+  {
+    // Every record is one line
+    if (path == null || path.indexOf('\n') >= 0)
+      return;
+
+    executor.execute(() ->
+    {
+      apply(type, timeMs, playTimeMs, path);
+      sendBroadcast();
+      append(type + "\t" + timeMs + "\t" + playTimeMs + "\t" + path + "\n");
+    });
+  }
+
+  /**
+   * Tells the game lists that are sorted by the play stats that the stats have changed.
+   */
+  private static void sendBroadcast()
+  {
+    LocalBroadcastManager.getInstance(DolphinApplication.getAppContext())
+            .sendBroadcast(new Intent(BROADCAST_ACTION));
+  }
+
+  private static void apply(char type, long timeMs, long playTimeMs, String path)
+  {
+    PlayStats stats = playStats.get(path);
+    long lastPlayedMs = stats == null ? 0 : stats.getLastPlayedMs();
+    long totalPlayTimeMs = stats == null ? 0 : stats.getTotalPlayTimeMs();
+    int launchCount = stats == null ? 0 : stats.getLaunchCount();
+
+    if (type == RECORD_LAUNCH)
+      launchCount++;
+    else
+      totalPlayTimeMs += playTimeMs;
+
+    playStats.put(path,
+            new PlayStats(Math.max(lastPlayedMs, timeMs), totalPlayTimeMs, launchCount));
+  }
+
+  private static void append(String line)
+  {
+    try
+    {
+      if (logStream == null)
+      {
+        directory.mkdirs();
+        logStream = new FileOutputStream(getLogFile(generation), true);
+      }
+
+      // A single write, synced right away, so that at most the line being written gets lost
+      logStream.write(line.getBytes(StandardCharsets.UTF_8));
+      logStream.getFD().sync();
+    }
+    catch (IOException e)
+    {
+      Log.warning("[PlaySessionStore] Failed to write the play session log: " + e.getMessage());
+      closeLog();
+      return;
+    }
+
+    if (++recordsSinceCompaction >= COMPACTION_INTERVAL)
+      compact();
+  }
+
+  private static void load()
+  {
+    generation = readSummary();
+
+    List<Long> logGenerations = new ArrayList<>();
+    String[] names = directory.list();
+    if (names != null)
+    {
+      for (String name : names)
+      {
+        if (!name.startsWith(LOG_FILE_PREFIX))
+          continue;
+
+        try
+        {
+          logGenerations.add(Long.parseLong(name.substring(LOG_FILE_PREFIX.length())));
+        }
+        catch (NumberFormatException e)
+        {
+          // Not a log
+        }
+      }
+    }
+    Collections.sort(logGenerations);
+
+    boolean isLogDamaged = false;
+    for (long logGeneration : logGenerations)
+    {
+      File logFile = getLogFile(logGeneration);
+      if (logGeneration < generation)
+      {
+        // Already part of the summary, but didn't get deleted
+        logFile.delete();
+        continue;
+      }
+
+      generation = logGeneration;
+      isLogDamaged |= !replayLog(logFile);
+    }
+
+    // A fresh log is started rather than appending to one that ends in a partial line
+    if (isLogDamaged || recordsSinceCompaction >= COMPACTION_INTERVAL)
+      compact();
+
+    if (!playStats.isEmpty())
+      sendBroadcast();
+  }
+
+  /**
+   * @return false if the log ends in a partial line.
+   */
+  private static boolean replayLog(File logFile)
+  {
+    byte[] contents;
+    try (InputStream in = new FileInputStream(logFile))
+    {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8 * 1024];
+      int length;
+      while ((length = in.read(buffer)) != -1)
+      {
+        out.write(buffer, 0, length);
+      }
+      contents = out.toByteArray();
+    }
+    catch (IOException e)
+    {
+      Log.warning("[PlaySessionStore] Failed to read " + logFile + ": " + e.getMessage());
+      return false;
+    }
+
+    int lineStart = 0;
+    for (int i = 0; i < contents.length; i++)
+    {
+      if (contents[i] != '\n')
+        continue;
+
+      String line = new String(contents, lineStart, i - lineStart, StandardCharsets.UTF_8);
+      lineStart = i + 1;
+
+      String[] fields = line.split("\t", 4);
+      if (fields.length != 4 || fields[0].length() != 1)
+        continue;
+
+      try
+      {
+        char type = fields[0].charAt(0);
+        if (type == RECORD_LAUNCH || type == RECORD_PLAYED)
+        {
+          apply(type, Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]);
+          recordsSinceCompaction++;
+        }
+      }
+      catch (NumberFormatException e)
+      {
+        // Skip the damaged line
+      }
+    }
+
+    return lineStart == contents.length;
+  }
+
+  /**
+   * Writes everything that is known to the summary and starts a new log.
+   */
+  private static void compact()
+  {
+    closeLog();
+
+    long newGeneration = generation + 1;
+    if (!writeSummary(newGeneration))
+      return;
+
+    // The summary now covers these logs
+    for (long logGeneration = generation; logGeneration >= 0; logGeneration--)
+    {
+      File logFile = getLogFile(logGeneration);
+      if (!logFile.exists())
+        break;
+      logFile.delete();
+    }
+
+    generation = newGeneration;
+    recordsSinceCompaction = 0;
+  }
+
+  private static void closeLog()
+  {
+    if (logStream == null)
+      return;
+
+    try
+    {
+      logStream.close();
+    }
+    catch (IOException e)
+    {
+      // Everything has already been synced
+    }
+    logStream = null;
+  }
+
+  /**
+   * @return The first log generation that isn't part of the summary.
+   */
+  private static long readSummary()
+  {
+    AtomicFile summaryFile = new AtomicFile(new File(directory, SUMMARY_FILE_NAME));
+    try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(summaryFile.openRead(), StandardCharsets.UTF_8)))
+    {
+      long summaryGeneration = Long.parseLong(reader.readLine());
+
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        String[] fields = line.split("\t", 4);
+        if (fields.length != 4)
+          continue;
+
+        playStats.put(fields[3], new PlayStats(Long.parseLong(fields[0]),
+                Long.parseLong(fields[1]), Integer.parseInt(fields[2])));
+      }
+
+      return summaryGeneration;
+    }
+    catch (FileNotFoundException e)
+    {
+      // Nothing has been folded into a summary yet
+      return 0;
+    }
+    catch (IOException | NumberFormatException e)
+    {
+      // The summary is only ever replaced as a whole, so this shouldn't happen
+      Log.warning("[PlaySessionStore] Failed to read " + summaryFile.getBaseFile() + ": " +
+              e.getMessage());
+      playStats.clear();
+      return 0;
+    }
+  }
+
+  private static boolean writeSummary(long summaryGeneration)
+  {
+    directory.mkdirs();
+    AtomicFile summaryFile = new AtomicFile(new File(directory, SUMMARY_FILE_NAME));
+    FileOutputStream stream = null;
+    try
+    {
+      stream = summaryFile.startWrite();
+      BufferedWriter writer =
+              new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+      writer.write(Long.toString(summaryGeneration));
+      writer.newLine();
+      for (Map.Entry<String, PlayStats> entry : playStats.entrySet())
+      {
+        PlayStats stats = entry.getValue();
+        writer.write(stats.getLastPlayedMs() + "\t" + stats.getTotalPlayTimeMs() + "\t" +
+                stats.getLaunchCount() + "\t" + entry.getKey());
+        writer.newLine();
+      }
+      writer.flush();
+
+      // Waits for the summary to be on disk, since the logs it covers get deleted afterwards
+      summaryFile.finishWrite(stream);
+      return true;
+    }
+    catch (IOException e)
+    {
+      Log.warning("[PlaySessionStore] Failed to write " + summaryFile.getBaseFile() + ": " +
+              e.getMessage());
+      summaryFile.failWrite(stream);
+      return false;
+    }
+  }
+
+  private static File getLogFile(long logGeneration)
+  {
+    return new File(directory, LOG_FILE_PREFIX + logGeneration);
+  }
+}
@@ -108,7 +108,9 @@ public class SyncProgramsJobService extends JobService
 
     private void getGamesByPlatform(Platform platform)
     {
-      updatePrograms = GameFileCacheService.getGameFilesForPlatform(platform);
+      // Recently played games come first, since the home screen only shows the first few
+      updatePrograms = PlaySessionStore.sortByLastPlayed(
+              GameFileCacheService.getGameFilesForPlatform(platform));
     }
 
     private void syncPrograms(long channelId)
@@ -8,6 +8,7 @@ import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.TabLayout;
 import android.support.v4.view.ViewPager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -119,6 +120,23 @@ public final class MainActivity extends AppCompatActivity implements MainView
   {
     MenuInflater inflater = getMenuInflater();
     inflater.inflate(R.menu.menu_game_grid, menu);
+
+    SearchView searchView = (SearchView) menu.findItem(R.id.menu_search).getActionView();
+    searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener()
+    {
+      @Override
+      public boolean onQueryTextSubmit(String query)
+      {
+        return false;
+      }
+
+      @Override
+      public boolean onQueryTextChange(String query)
+      {
+        setSearchQuery(query);
+        return true;
+      }
+    });
     return true;
   }
 
@@ -231,6 +249,18 @@ public final class MainActivity extends AppCompatActivity implements MainView
     }
   }
 
+  private void setSearchQuery(String query)
+  {
+    for (Platform platform : Platform.values())
+    {
+      PlatformGamesView fragment = getPlatformGamesView(platform);
+      if (fragment != null)
+      {
+        fragment.setSearchQuery(query);
+      }
+    }
+  }
+
   @Nullable
   private PlatformGamesView getPlatformGamesView(Platform platform)
   {
@@ -1,5 +1,6 @@
 package org.dolphinemu.dolphinemu.ui.main;
 
+import android.app.AlertDialog;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -11,6 +12,7 @@ import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.features.settings.ui.MenuTag;
 import org.dolphinemu.dolphinemu.model.GameFileCache;
 import org.dolphinemu.dolphinemu.services.GameFileCacheService;
+import org.dolphinemu.dolphinemu.services.PlaySessionStore;
 
 public final class MainPresenter
 {
@@ -35,11 +37,19 @@ public final class MainPresenter
 
     IntentFilter filter = new IntentFilter();
     filter.addAction(GameFileCacheService.BROADCAST_ACTION);
+    filter.addAction(PlaySessionStore.BROADCAST_ACTION);
     mBroadcastReceiver = new BroadcastReceiver()
     {
       @Override
       public void onReceive(Context context, Intent intent)
       {
+        // Playing a game doesn't change the order of games that are sorted by title
+        if (PlaySessionStore.BROADCAST_ACTION.equals(intent.getAction()) &&
+                PlaySessionStore.getSortOrder(context) == PlaySessionStore.SORT_BY_TITLE)
+        {
+          return;
+        }
+
         mView.showGames();
       }
     };
@@ -83,6 +93,10 @@ public final class MainPresenter
         GameFileCacheService.startRescan(context);
         return true;
 
+      case R.id.menu_sort:
+        showSortOrderDialog(context);
+        return true;
+
       case R.id.button_add_directory:
         mView.launchFileListActivity();
         return true;
@@ -95,6 +109,20 @@ public final class MainPresenter
     return false;
   }
 
+  private void showSortOrderDialog(Context context)
+  {
+    AlertDialog.Builder builder = new AlertDialog.Builder(context);
+    builder.setTitle(R.string.grid_menu_sort);
+    builder.setSingleChoiceItems(R.array.gameListSortOrderEntries,
+            PlaySessionStore.getSortOrder(context), (dialog, indexSelected) ->
+            {
+              PlaySessionStore.setSortOrder(context, indexSelected);
+              mView.showGames();
+              dialog.dismiss();
+            });
+    builder.show();
+  }
+
   public void addDirIfNeeded(Context context)
   {
     if (mDirToAdd != null)
@@ -0,0 +1,85 @@
+package org.dolphinemu.dolphinemu.ui.main;
+
+import android.os.Bundle;
+import android.support.v17.leanback.app.SearchSupportFragment;
+import android.support.v17.leanback.widget.ArrayObjectAdapter;
+import android.support.v17.leanback.widget.HeaderItem;
+import android.support.v17.leanback.widget.ListRow;
+import android.support.v17.leanback.widget.ObjectAdapter;
+
+import org.dolphinemu.dolphinemu.activities.EmulationActivity;
+import org.dolphinemu.dolphinemu.adapters.GameListRowPresenter;
+import org.dolphinemu.dolphinemu.adapters.GameRowPresenter;
+import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.services.GameFileCacheService;
+import org.dolphinemu.dolphinemu.services.PlaySessionStore;
+import org.dolphinemu.dolphinemu.ui.platform.Platform;
+import org.dolphinemu.dolphinemu.viewholders.TvGameViewHolder;
+
+import java.util.List;
+
+/**
+ * Leanback search screen for the game library. Results are shown as one row per platform,
+ * using the same cards as the browse screen.
+ */
+public final class TvGameSearchFragment extends SearchSupportFragment
+        implements SearchSupportFragment.SearchResultProvider
+{
+  private final ArrayObjectAdapter mRowsAdapter =
+          new ArrayObjectAdapter(new GameListRowPresenter());
+
+  @Override
+  public void onCreate(Bundle savedInstanceState)
+  {
+    super.onCreate(savedInstanceState);
+
+    setSearchResultProvider(this);
+    setOnItemViewClickedListener((itemViewHolder, item, rowViewHolder, row) ->
+    {
+      TvGameViewHolder holder = (TvGameViewHolder) itemViewHolder;
+      EmulationActivity.launch(getActivity(), holder.gameFile);
+    });
+  }
+
+  @Override
+  public ObjectAdapter getResultsAdapter()
+  {
+    return mRowsAdapter;
+  }
+
+  @Override
+  public boolean onQueryTextChange(String newQuery)
+  {
+    showResults(newQuery);
+    return true;
+  }
+
+  @Override
+  public boolean onQueryTextSubmit(String query)
+  {
+    showResults(query);
+    return true;
+  }
+
+  private void showResults(String query)
+  {
+    mRowsAdapter.clear();
+    if (query.trim().isEmpty())
+      return;
+
+    int sortOrder = PlaySessionStore.getSortOrder(getActivity());
+    for (Platform platform : Platform.values())
+    {
+      List<GameFile> results = PlaySessionStore.sort(
+              GameFileCacheService.searchGameFilesForPlatform(query, platform), sortOrder);
+      if (results.isEmpty())
+        continue;
+
+      ArrayObjectAdapter row = new ArrayObjectAdapter(new GameRowPresenter());
+      row.addAll(0, results);
+
+      HeaderItem header = new HeaderItem(platform.toInt(), platform.getHeaderName());
+      mRowsAdapter.add(new ListRow(header, row));
+    }
+  }
+}
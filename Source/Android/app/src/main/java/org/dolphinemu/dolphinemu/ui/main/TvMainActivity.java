@@ -6,9 +6,9 @@ import android.os.Bundle;
 import android.support.v17.leanback.app.BrowseFragment;
 import android.support.v17.leanback.app.BrowseSupportFragment;
 import android.support.v17.leanback.widget.ArrayObjectAdapter;
+import android.support.v17.leanback.widget.DiffCallback;
 import android.support.v17.leanback.widget.HeaderItem;
 import android.support.v17.leanback.widget.ListRow;
-import android.support.v17.leanback.widget.ListRowPresenter;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.content.ContextCompat;
@@ -16,6 +16,7 @@ import android.widget.Toast;
 
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.activities.EmulationActivity;
+import org.dolphinemu.dolphinemu.adapters.GameListRowPresenter;
 import org.dolphinemu.dolphinemu.adapters.GameRowPresenter;
 import org.dolphinemu.dolphinemu.adapters.SettingsRowPresenter;
 import org.dolphinemu.dolphinemu.features.settings.ui.MenuTag;
@@ -24,6 +25,7 @@ import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.model.TvSettingsItem;
 import org.dolphinemu.dolphinemu.utils.DirectoryInitialization;
 import org.dolphinemu.dolphinemu.services.GameFileCacheService;
+import org.dolphinemu.dolphinemu.services.PlaySessionStore;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
 import org.dolphinemu.dolphinemu.utils.FileBrowserHelper;
 import org.dolphinemu.dolphinemu.utils.PermissionsHandler;
@@ -31,15 +33,34 @@ import org.dolphinemu.dolphinemu.utils.StartupHandler;
 import org.dolphinemu.dolphinemu.utils.TvUtil;
 import org.dolphinemu.dolphinemu.viewholders.TvGameViewHolder;
 
-import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 public final class TvMainActivity extends FragmentActivity implements MainView
 {
+  private static final DiffCallback<GameFile> GAME_DIFF_CALLBACK = new DiffCallback<GameFile>()
+  {
+    @Override
+    public boolean areItemsTheSame(GameFile oldItem, GameFile newItem)
+    {
+      return oldItem.getPath().equals(newItem.getPath());
+    }
+
+    @Override
+    public boolean areContentsTheSame(GameFile oldItem, GameFile newItem)
+    {
+      return oldItem.getTitle().equals(newItem.getTitle()) &&
+              oldItem.getGameTdbId().equals(newItem.getGameTdbId());
+    }
+  };
+
   private MainPresenter mPresenter = new MainPresenter(this, this);
 
   private BrowseSupportFragment mBrowseFragment;
 
   private ArrayObjectAdapter mRowsAdapter;
+  private final Map<Platform, ListRow> mGameRows = new EnumMap<>(Platform.class);
 
   @Override
   protected void onCreate(Bundle savedInstanceState)
@@ -102,6 +123,13 @@ public final class TvMainActivity extends FragmentActivity implements MainView
     mBrowseFragment.setBrandColor(ContextCompat.getColor(this, R.color.dolphin_blue_dark));
     buildRowsAdapter();
 
+    mBrowseFragment.setOnSearchClickedListener(view ->
+            fragmentManager
+                    .beginTransaction()
+                    .replace(R.id.content, new TvGameSearchFragment())
+                    .addToBackStack(null)
+                    .commit());
+
     mBrowseFragment.setOnItemViewClickedListener(
             (itemViewHolder, item, rowViewHolder, row) ->
             {
@@ -152,10 +180,13 @@ public final class TvMainActivity extends FragmentActivity implements MainView
   @Override
   public void showGames()
   {
-    // Kicks off the program services to update all channels
-    TvUtil.updateAllChannels(getApplicationContext());
+    // Kicks off the program services to update all channels, but only once the
+    // game list is complete rather than for every batch of a running scan,
+    // or for the list that is shown from the previous run while the cache loads
+    if (GameFileCacheService.hasLoadedCache() && !GameFileCacheService.isScanInProgress())
+      TvUtil.updateAllChannels(getApplicationContext());
 
-    buildRowsAdapter();
+    updateGameRows();
   }
 
   /**
@@ -213,37 +244,62 @@ public final class TvMainActivity extends FragmentActivity implements MainView
 
   private void buildRowsAdapter()
   {
-    mRowsAdapter = new ArrayObjectAdapter(new ListRowPresenter());
+    mRowsAdapter = new ArrayObjectAdapter(new GameListRowPresenter());
+    mGameRows.clear();
 
     if (PermissionsHandler.hasWriteAccess(this))
     {
       GameFileCacheService.startLoad(this);
     }
 
-    for (Platform platform : Platform.values())
-    {
-      ListRow row = buildGamesRow(platform, GameFileCacheService.getGameFilesForPlatform(platform));
-
-      // Add row to the adapter only if it is not empty.
-      if (row != null)
-      {
-        mRowsAdapter.add(row);
-      }
-    }
-
     mRowsAdapter.add(buildSettingsRow());
+    updateGameRows();
 
     mBrowseFragment.setAdapter(mRowsAdapter);
   }
 
-  private ListRow buildGamesRow(Platform platform, Collection<GameFile> gameFiles)
+  /**
+   * Brings the game rows in line with the current game list. Rows that already exist are
+   * diffed against the new list rather than rebuilt, so only the cards of games that were
+   * added, removed or changed get rebound, and the focused card stays where it is.
+   */
+  private void updateGameRows()
   {
-    // If there are no games, don't return a Row.
-    if (gameFiles.size() == 0)
+    int position = 0;
+    int sortOrder = PlaySessionStore.getSortOrder(this);
+    for (Platform platform : Platform.values())
     {
-      return null;
+      List<GameFile> gameFiles = PlaySessionStore.sort(
+              GameFileCacheService.getGameFilesForPlatform(platform), sortOrder);
+      ListRow row = mGameRows.get(platform);
+
+      // Only show a row if it is not empty.
+      if (gameFiles.isEmpty())
+      {
+        if (row != null)
+        {
+          mRowsAdapter.remove(row);
+          mGameRows.remove(platform);
+        }
+        continue;
+      }
+
+      if (row == null)
+      {
+        row = buildGamesRow(platform, gameFiles);
+        mGameRows.put(platform, row);
+        mRowsAdapter.add(position, row);
+      }
+      else
+      {
+        ((ArrayObjectAdapter) row.getAdapter()).setItems(gameFiles, GAME_DIFF_CALLBACK);
+      }
+      position++;
     }
+  }
 
+  private ListRow buildGamesRow(Platform platform, List<GameFile> gameFiles)
+  {
     // Create an adapter for this row.
     ArrayObjectAdapter row = new ArrayObjectAdapter(new GameRowPresenter());
     row.addAll(0, gameFiles);
@@ -283,6 +339,10 @@ public final class TvMainActivity extends FragmentActivity implements MainView
             R.drawable.ic_refresh_tv,
             R.string.grid_menu_refresh));
 
+    rowItems.add(new TvSettingsItem(R.id.menu_sort,
+            R.drawable.ic_sort_tv,
+            R.string.grid_menu_sort));
+
     // Create a header for this row.
     HeaderItem header =
             new HeaderItem(R.string.preferences_settings, getString(R.string.preferences_settings));
@@ -10,15 +10,22 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import org.dolphinemu.dolphinemu.R;
+import org.dolphinemu.dolphinemu.adapters.CoverScrollPrefetcher;
 import org.dolphinemu.dolphinemu.adapters.GameAdapter;
+import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.services.GameFileCacheService;
+import org.dolphinemu.dolphinemu.services.PlaySessionStore;
+
+import java.util.List;
 
 public final class PlatformGamesFragment extends Fragment implements PlatformGamesView
 {
   private static final String ARG_PLATFORM = "platform";
+  private static final int COVER_PREFETCH_ROWS = 3;
 
   private GameAdapter mAdapter;
   private RecyclerView mRecyclerView;
+  private String mSearchQuery = "";
 
   public static PlatformGamesFragment newInstance(Platform platform)
   {
@@ -59,6 +66,8 @@ public final class PlatformGamesFragment extends Fragment implements PlatformGam
     mRecyclerView.setAdapter(mAdapter);
 
     mRecyclerView.addItemDecoration(new GameAdapter.SpacesItemDecoration(8));
+    mRecyclerView.addOnScrollListener(
+            new CoverScrollPrefetcher(mAdapter::getGame, COVER_PREFETCH_ROWS));
 
     showGames();
   }
@@ -81,10 +90,20 @@ public final class PlatformGamesFragment extends Fragment implements PlatformGam
     if (mAdapter != null)
     {
       Platform platform = (Platform) getArguments().getSerializable(ARG_PLATFORM);
-      mAdapter.swapDataSet(GameFileCacheService.getGameFilesForPlatform(platform));
+      List<GameFile> games =
+              GameFileCacheService.searchGameFilesForPlatform(mSearchQuery, platform);
+      mAdapter.swapDataSet(
+              PlaySessionStore.sort(games, PlaySessionStore.getSortOrder(getActivity())));
     }
   }
 
+  @Override
+  public void setSearchQuery(String query)
+  {
+    mSearchQuery = query;
+    showGames();
+  }
+
   private void findViews(View root)
   {
     mRecyclerView = (RecyclerView) root.findViewById(R.id.grid_games);
@@ -25,4 +25,11 @@ public interface PlatformGamesView
    * To be called when the game file cache is updated.
    */
   void showGames();
+
+  /**
+   * Only show games matching the query from now on. An empty query shows all games.
+   *
+   * @param query The text the user has typed into the search box.
+   */
+  void setSearchQuery(String query);
 }
@@ -1,11 +1,7 @@
 package org.dolphinemu.dolphinemu.utils;
 
-import android.graphics.Bitmap;
-
 import org.dolphinemu.dolphinemu.model.GameFile;
 
-import java.io.FileOutputStream;
-
 public final class CoverHelper
 {
   private static String baseUrl = "https://art.gametdb.com/wii/cover/%s/%s.png";
@@ -60,18 +56,4 @@ public final class CoverHelper
     }
     return region;
   }
-
-  public static void saveCover(Bitmap cover, String path)
-  {
-    try
-    {
-      FileOutputStream out = new FileOutputStream(path);
-      cover.compress(Bitmap.CompressFormat.PNG, 100, out);
-      out.close();
-    }
-    catch (Exception e)
-    {
-      // Do nothing
-    }
-  }
 }
@@ -0,0 +1,26 @@
+package org.dolphinemu.dolphinemu.utils;
+
+/**
+ * The 64-bit FNV-1a hash. It is cheap to compute and, unlike String.hashCode, rarely collides
+ * for the thousands of similar strings that paths and file contents make up.
+ */
+public final class Fnv1a
+{
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private Fnv1a()
+  {
+  }
+
+  public static long hash(CharSequence text)
+  {
+    long hash = OFFSET_BASIS;
+    for (int i = 0; i < text.length(); i++)
+    {
+      hash ^= text.charAt(i);
+      hash *= PRIME;
+    }
+    return hash;
+  }
+}
@@ -1,14 +1,13 @@
 package org.dolphinemu.dolphinemu.utils;
 
 import android.graphics.Bitmap;
-import android.graphics.drawable.BitmapDrawable;
 import android.widget.ImageView;
 
-import com.squareup.picasso.Callback;
 import com.squareup.picasso.Picasso;
 
 import org.dolphinemu.dolphinemu.R;
 import org.dolphinemu.dolphinemu.model.GameFile;
+import org.dolphinemu.dolphinemu.services.CoverService;
 
 import java.io.File;
 
@@ -16,108 +15,62 @@ public class PicassoUtils
 {
   public static void loadGameBanner(ImageView imageView, GameFile gameFile)
   {
-    File cover = new File(gameFile.getCustomCoverPath());
-    if (cover.exists())
+    CoverService.CoverFuture cover = CoverService.getCover(gameFile);
+
+    // The view may get bound to another game before the lookup finishes
+    imageView.setTag(cover);
+
+    if (cover.isDone())
     {
-      Picasso.get()
-              .load(cover)
-              .noFade()
-              .noPlaceholder()
-              .fit()
-              .centerInside()
-              .config(Bitmap.Config.ARGB_8888)
-              .error(R.drawable.no_banner)
-              .into(imageView);
+      loadCover(imageView, cover.getNow());
     }
-    else if ((cover = new File(gameFile.getCoverPath())).exists())
+    else
     {
-      Picasso.get()
-              .load(cover)
-              .noFade()
-              .noPlaceholder()
-              .fit()
-              .centerInside()
-              .config(Bitmap.Config.ARGB_8888)
-              .error(R.drawable.no_banner)
-              .into(imageView);
+      Picasso.get().cancelRequest(imageView);
+      imageView.setImageDrawable(null);
+      cover.addListener(coverFile ->
+      {
+        if (imageView.getTag() == cover)
+          loadCover(imageView, coverFile);
+      });
     }
-    /**
-     * GameTDB has a pretty close to complete collection for US/EN covers. First pass at getting
-     * the cover will be by the disk's region, second will be the US cover, and third EN.
-     */
-    else
+  }
+
+  private static void loadCover(ImageView imageView, File cover)
+  {
+    if (cover == null)
     {
-      Picasso.get()
-              .load(CoverHelper.buildGameTDBUrl(gameFile, CoverHelper.getRegion(gameFile)))
-              .noFade()
-              .noPlaceholder()
-              .fit()
-              .centerInside()
-              .config(Bitmap.Config.ARGB_8888)
-              .error(R.drawable.no_banner)
-              .into(imageView, new Callback()
-              {
-                @Override
-                public void onSuccess()
-                {
-                  CoverHelper.saveCover(((BitmapDrawable) imageView.getDrawable()).getBitmap(),
-                          gameFile.getCoverPath());
-                }
+      Picasso.get().cancelRequest(imageView);
+      imageView.setImageResource(R.drawable.no_banner);
+      return;
+    }
 
-                @Override
-                public void onError(Exception ex) // Second pass using US region
-                {
-                  Picasso.get()
-                          .load(CoverHelper.buildGameTDBUrl(gameFile, "US"))
-                          .fit()
-                          .noFade()
-                          .fit()
-                          .centerInside()
-                          .noPlaceholder()
-                          .config(Bitmap.Config.ARGB_8888)
-                          .error(R.drawable.no_banner)
-                          .into(imageView, new Callback()
-                          {
-                            @Override
-                            public void onSuccess()
-                            {
-                              CoverHelper.saveCover(
-                                      ((BitmapDrawable) imageView.getDrawable()).getBitmap(),
-                                      gameFile.getCoverPath());
-                            }
+    // Covers are already thumbnails of about the card size, so they aren't resized here.
+    // That also keeps the memory cache key the same as for prefetchCover.
+    Picasso.get()
+            .load(cover)
+            .noFade()
+            .noPlaceholder()
+            .config(Bitmap.Config.RGB_565)
+            .error(R.drawable.no_banner)
+            .into(imageView);
+  }
 
-                            @Override
-                            public void onError(Exception ex) // Third and last pass using EN region
-                            {
-                              Picasso.get()
-                                      .load(CoverHelper.buildGameTDBUrl(gameFile, "EN"))
-                                      .fit()
-                                      .noFade()
-                                      .fit()
-                                      .centerInside()
-                                      .noPlaceholder()
-                                      .config(Bitmap.Config.ARGB_8888)
-                                      .error(R.drawable.no_banner)
-                                      .into(imageView, new Callback()
-                                      {
-                                        @Override
-                                        public void onSuccess()
-                                        {
-                                          CoverHelper.saveCover(
-                                                  ((BitmapDrawable) imageView.getDrawable())
-                                                          .getBitmap(),
-                                                  gameFile.getCoverPath());
-                                        }
+  /**
+   * Decodes a cover into the memory cache, so that loadGameBanner can show it right away.
+   */
+  public static void prefetchCover(File cover, Object tag)
+  {
+    Picasso.get()
+            .load(cover)
+            .config(Bitmap.Config.RGB_565)
+            .priority(Picasso.Priority.LOW)
+            .tag(tag)
+            .fetch();
+  }
 
-                                        @Override
-                                        public void onError(Exception ex)
-                                        {
-                                        }
-                                      });
-                            }
-                          });
-                }
-              });
-    }
+  public static void cancelCoverPrefetch(Object tag)
+  {
+    Picasso.get().cancelTag(tag);
   }
 }
@@ -26,6 +26,7 @@ import android.util.Log;
 
 import org.dolphinemu.dolphinemu.model.GameFile;
 import org.dolphinemu.dolphinemu.model.HomeScreenChannel;
+import org.dolphinemu.dolphinemu.services.CoverService;
 import org.dolphinemu.dolphinemu.services.SyncChannelJobService;
 import org.dolphinemu.dolphinemu.services.SyncProgramsJobService;
 import org.dolphinemu.dolphinemu.ui.platform.Platform;
@@ -161,12 +162,8 @@ public class TvUtil
 
     try
     {
-      File cover = new File(game.getCustomCoverPath());
-      if (cover.exists())
-      {
-        contentUri = getUriForFile(context, getFileProvider(context), cover);
-      }
-      else if ((cover = new File(game.getCoverPath())).exists())
+      File cover = CoverService.findCoverFile(game);
+      if (cover != null)
       {
         contentUri = getUriForFile(context, getFileProvider(context), cover);
       }
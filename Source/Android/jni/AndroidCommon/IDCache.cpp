@@ -136,7 +136,10 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved)
   const jclass game_file_class = env->FindClass("org/dolphinemu/dolphinemu/model/GameFile");
   s_game_file_class = reinterpret_cast<jclass>(env->NewGlobalRef(game_file_class));
   s_game_file_pointer = env->GetFieldID(game_file_class, "mPointer", "J");
-  s_game_file_constructor = env->GetMethodID(game_file_class, "<init>", "(J)V");
+  s_game_file_constructor = env->GetMethodID(
+      game_file_class, "<init>",
+      "(JILjava/lang/String;Ljava/lang/String;Ljava/lang/String;IILjava/lang/String;"
+      "Ljava/lang/String;Ljava/lang/String;II)V");
 
   const jclass game_file_cache_class =
       env->FindClass("org/dolphinemu/dolphinemu/model/GameFileCache");
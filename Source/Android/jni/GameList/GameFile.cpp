@@ -21,9 +21,10 @@ static std::shared_ptr<const UICommon::GameFile>* GetPointer(JNIEnv* env, jobjec
       env->GetLongField(obj, IDCache::GetGameFilePointer()));
 }
 
-static std::shared_ptr<const UICommon::GameFile>& GetRef(JNIEnv* env, jobject obj)
+const UICommon::GameFile* GameFileFromJava(JNIEnv* env, jobject game_file)
 {
-  return *GetPointer(env, obj);
+  const std::shared_ptr<const UICommon::GameFile>* ptr = GetPointer(env, game_file);
+  return ptr ? ptr->get() : nullptr;
 }
 
 jobject GameFileToJava(JNIEnv* env, std::shared_ptr<const UICommon::GameFile> game_file)
@@ -31,37 +32,44 @@ jobject GameFileToJava(JNIEnv* env, std::shared_ptr<const UICommon::GameFile> ga
   if (!game_file)
     return nullptr;
 
-  return env->NewObject(
+  // All metadata is passed to the constructor so that the Java side never needs to cross back
+  // over JNI to read it, and a whole game list can be materialized in a single native call.
+  const jstring title = ToJString(env, game_file->GetName());
+  const jstring description = ToJString(env, game_file->GetDescription());
+  const jstring company = ToJString(env, DiscIO::GetCompanyFromID(game_file->GetMakerID()));
+  const jstring path = ToJString(env, game_file->GetFilePath());
+  const jstring game_id = ToJString(env, game_file->GetGameID());
+  const jstring game_tdb_id = ToJString(env, game_file->GetGameTDBID());
+
+  const jint platform = static_cast<jint>(game_file->GetPlatform());
+  const jint country = static_cast<jint>(game_file->GetCountry());
+  const jint region = static_cast<jint>(game_file->GetRegion());
+  const jint disc_number = static_cast<jint>(game_file->GetDiscNumber());
+  const jint revision = static_cast<jint>(game_file->GetRevision());
+
+  const jobject result = env->NewObject(
       IDCache::GetGameFileClass(), IDCache::GetGameFileConstructor(),
-      reinterpret_cast<jlong>(new std::shared_ptr<const UICommon::GameFile>(std::move(game_file))));
+      reinterpret_cast<jlong>(new std::shared_ptr<const UICommon::GameFile>(std::move(game_file))),
+      platform, title, description, company, country, region, path, game_id, game_tdb_id,
+      disc_number, revision);
+
+  env->DeleteLocalRef(title);
+  env->DeleteLocalRef(description);
+  env->DeleteLocalRef(company);
+  env->DeleteLocalRef(path);
+  env->DeleteLocalRef(game_id);
+  env->DeleteLocalRef(game_tdb_id);
+
+  return result;
 }
 
 #ifdef __cplusplus
 extern "C" {
 #endif
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_finalize(JNIEnv* env,
-                                                                              jobject obj);
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getPlatform(JNIEnv* env,
-                                                                                 jobject obj);
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getTitle(JNIEnv* env,
-                                                                                 jobject obj);
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getDescription(JNIEnv* env,
-                                                                                       jobject obj);
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getCompany(JNIEnv* env,
-                                                                                   jobject obj);
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getCountry(JNIEnv* env,
-                                                                                jobject obj);
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getRegion(JNIEnv* env,
-                                                                               jobject obj);
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getPath(JNIEnv* env,
-                                                                                jobject obj);
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getGameId(JNIEnv* env,
-                                                                                  jobject obj);
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getDiscNumber(JNIEnv* env,
-                                                                                   jobject obj);
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getRevision(JNIEnv* env,
-                                                                                 jobject obj);
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_deletePointer(JNIEnv* env,
+                                                                                   jclass clazz,
+                                                                                   jlong pointer);
 JNIEXPORT jintArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBanner(JNIEnv* env,
                                                                                     jobject obj);
 JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerWidth(JNIEnv* env,
@@ -69,82 +77,21 @@ JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerWi
 JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerHeight(JNIEnv* env,
                                                                                      jobject obj);
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_finalize(JNIEnv* env,
-                                                                              jobject obj)
-{
-  delete GetPointer(env, obj);
-}
-
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getPlatform(JNIEnv* env,
-                                                                                 jobject obj)
-{
-  return static_cast<jint>(GetRef(env, obj)->GetPlatform());
-}
-
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getTitle(JNIEnv* env,
-                                                                                 jobject obj)
-{
-  return ToJString(env, GetRef(env, obj)->GetName());
-}
-
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getDescription(JNIEnv* env,
-                                                                                       jobject obj)
-{
-  return ToJString(env, GetRef(env, obj)->GetDescription());
-}
-
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getCompany(JNIEnv* env,
-                                                                                   jobject obj)
-{
-  return ToJString(env, DiscIO::GetCompanyFromID(GetRef(env, obj)->GetMakerID()));
-}
-
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getCountry(JNIEnv* env,
-                                                                                jobject obj)
-{
-  return static_cast<jint>(GetRef(env, obj)->GetCountry());
-}
-
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getRegion(JNIEnv* env,
-                                                                               jobject obj)
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_deletePointer(JNIEnv* env,
+                                                                                   jclass clazz,
+                                                                                   jlong pointer)
 {
-  return static_cast<jint>(GetRef(env, obj)->GetRegion());
-}
-
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getPath(JNIEnv* env,
-                                                                                jobject obj)
-{
-  return ToJString(env, GetRef(env, obj)->GetFilePath());
-}
-
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getGameId(JNIEnv* env,
-                                                                                  jobject obj)
-{
-  return ToJString(env, GetRef(env, obj)->GetGameID());
-}
-
-JNIEXPORT jstring JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getGameTdbId(JNIEnv* env,
-                                                                                     jobject obj)
-{
-  return ToJString(env, GetRef(env, obj)->GetGameTDBID());
-}
-
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getDiscNumber(JNIEnv* env,
-                                                                                   jobject obj)
-{
-  return env, GetRef(env, obj)->GetDiscNumber();
-}
-
-JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getRevision(JNIEnv* env,
-                                                                                 jobject obj)
-{
-  return env, GetRef(env, obj)->GetRevision();
+  delete reinterpret_cast<std::shared_ptr<const UICommon::GameFile>*>(pointer);
 }
 
 JNIEXPORT jintArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBanner(JNIEnv* env,
                                                                                     jobject obj)
 {
-  const std::vector<u32>& buffer = GetRef(env, obj)->GetBannerImage().buffer;
+  const UICommon::GameFile* game_file = GameFileFromJava(env, obj);
+  if (!game_file)
+    return nullptr;
+
+  const std::vector<u32>& buffer = game_file->GetBannerImage().buffer;
   const jsize size = static_cast<jsize>(buffer.size());
   const jintArray out_array = env->NewIntArray(size);
   if (!out_array)
@@ -156,13 +103,15 @@ JNIEXPORT jintArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBan
 JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerWidth(JNIEnv* env,
                                                                                     jobject obj)
 {
-  return static_cast<jint>(GetRef(env, obj)->GetBannerImage().width);
+  const UICommon::GameFile* game_file = GameFileFromJava(env, obj);
+  return game_file ? static_cast<jint>(game_file->GetBannerImage().width) : 0;
 }
 
 JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_getBannerHeight(JNIEnv* env,
                                                                                      jobject obj)
 {
-  return static_cast<jint>(GetRef(env, obj)->GetBannerImage().height);
+  const UICommon::GameFile* game_file = GameFileFromJava(env, obj);
+  return game_file ? static_cast<jint>(game_file->GetBannerImage().height) : 0;
 }
 
 JNIEXPORT jobject JNICALL Java_org_dolphinemu_dolphinemu_model_GameFile_parse(JNIEnv* env,
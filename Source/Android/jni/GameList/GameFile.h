@@ -15,3 +15,6 @@ class GameFile;
 }
 
 jobject GameFileToJava(JNIEnv* env, std::shared_ptr<const UICommon::GameFile> game_file);
+
+// Returns nullptr if the Java object has been closed
+const UICommon::GameFile* GameFileFromJava(JNIEnv* env, jobject game_file);
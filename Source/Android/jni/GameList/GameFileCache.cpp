@@ -3,6 +3,7 @@
 // Refer to the license.txt file included.
 
 #include <memory>
+#include <unordered_map>
 #include <vector>
 
 #include <jni.h>
@@ -29,20 +30,22 @@ extern "C" {
 
 JNIEXPORT jlong JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_newGameFileCache(
     JNIEnv* env, jobject obj, jstring path);
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_finalize(JNIEnv* env,
-                                                                                   jobject obj);
-JNIEXPORT jobjectArray JNICALL
-Java_org_dolphinemu_dolphinemu_model_GameFileCache_getAllGames(JNIEnv* env, jobject obj);
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_deletePointer(
+    JNIEnv* env, jclass clazz, jlong pointer);
+JNIEXPORT jobjectArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_getAllGames(
+    JNIEnv* env, jobject obj, jobjectArray reusable_games);
 JNIEXPORT jobject JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_addOrGet(JNIEnv* env,
                                                                                       jobject obj,
                                                                                       jstring path);
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_addGame(
+    JNIEnv* env, jobject obj, jstring path);
 JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_update(
-    JNIEnv* env, jobject obj, jobjectArray folder_paths);
+    JNIEnv* env, jobject obj, jobjectArray game_paths);
 JNIEXPORT jboolean JNICALL
 Java_org_dolphinemu_dolphinemu_model_GameFileCache_updateAdditionalMetadata(JNIEnv* env,
                                                                             jobject obj);
-JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_load(JNIEnv* env,
-                                                                                   jobject obj);
+JNIEXPORT jboolean JNICALL
+Java_org_dolphinemu_dolphinemu_model_GameFileCache_loadCache(JNIEnv* env, jobject obj);
 JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_save(JNIEnv* env,
                                                                                    jobject obj);
 
@@ -52,21 +55,39 @@ JNIEXPORT jlong JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_newGa
   return reinterpret_cast<jlong>(new UICommon::GameFileCache(GetJString(env, path)));
 }
 
-JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_finalize(JNIEnv* env,
-                                                                                   jobject obj)
+JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_deletePointer(
+    JNIEnv* env, jclass clazz, jlong pointer)
 {
-  delete GetPointer(env, obj);
+  delete reinterpret_cast<UICommon::GameFileCache*>(pointer);
 }
 
-JNIEXPORT jobjectArray JNICALL
-Java_org_dolphinemu_dolphinemu_model_GameFileCache_getAllGames(JNIEnv* env, jobject obj)
+JNIEXPORT jobjectArray JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_getAllGames(
+    JNIEnv* env, jobject obj, jobjectArray reusable_games)
 {
+  // Games that are still the same native object as in the previous call get their old Java object
+  // back, so that only new or changed games need a new wrapper
+  std::unordered_map<const UICommon::GameFile*, jsize> reusable_indices;
+  const jsize reusable_size = env->GetArrayLength(reusable_games);
+  reusable_indices.reserve(static_cast<size_t>(reusable_size));
+  for (jsize i = 0; i < reusable_size; ++i)
+  {
+    const jobject java_game_file = env->GetObjectArrayElement(reusable_games, i);
+    if (const UICommon::GameFile* game_file = GameFileFromJava(env, java_game_file))
+      reusable_indices.emplace(game_file, i);
+    env->DeleteLocalRef(java_game_file);
+  }
+
   const UICommon::GameFileCache* ptr = GetPointer(env, obj);
   const jobjectArray array =
       env->NewObjectArray(static_cast<jsize>(ptr->GetSize()), IDCache::GetGameFileClass(), nullptr);
   jsize i = 0;
-  GetPointer(env, obj)->ForEach([env, array, &i](const auto& game_file) {
-    env->SetObjectArrayElement(array, i++, GameFileToJava(env, game_file));
+  ptr->ForEach([env, array, reusable_games, &reusable_indices, &i](const auto& game_file) {
+    const auto it = reusable_indices.find(game_file.get());
+    const jobject java_game_file = it != reusable_indices.end() ?
+                                       env->GetObjectArrayElement(reusable_games, it->second) :
+                                       GameFileToJava(env, game_file);
+    env->SetObjectArrayElement(array, i++, java_game_file);
+    env->DeleteLocalRef(java_game_file);
   });
   return array;
 }
@@ -79,22 +100,32 @@ JNIEXPORT jobject JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_add
   return GameFileToJava(env, GetPointer(env, obj)->AddOrGet(GetJString(env, path), &cache_changed));
 }
 
+JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_addGame(
+    JNIEnv* env, jobject obj, jstring path)
+{
+  // Like addOrGet, but tells whether anything changed instead of returning the game
+  bool cache_changed = false;
+  GetPointer(env, obj)->AddOrGet(GetJString(env, path), &cache_changed);
+  return static_cast<jboolean>(cache_changed);
+}
+
 JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_update(
-    JNIEnv* env, jobject obj, jobjectArray folder_paths)
+    JNIEnv* env, jobject obj, jobjectArray game_paths)
 {
-  jsize size = env->GetArrayLength(folder_paths);
+  // The Java side walks the game folders itself, so that it can skip folders that haven't changed
+  jsize size = env->GetArrayLength(game_paths);
 
-  std::vector<std::string> folder_paths_vector;
-  folder_paths_vector.reserve(size);
+  std::vector<std::string> game_paths_vector;
+  game_paths_vector.reserve(size);
 
   for (jsize i = 0; i < size; ++i)
   {
-    const jstring path = reinterpret_cast<jstring>(env->GetObjectArrayElement(folder_paths, i));
-    folder_paths_vector.push_back(GetJString(env, path));
+    const jstring path = reinterpret_cast<jstring>(env->GetObjectArrayElement(game_paths, i));
+    game_paths_vector.push_back(GetJString(env, path));
     env->DeleteLocalRef(path);
   }
 
-  return GetPointer(env, obj)->Update(UICommon::FindAllGamePaths(folder_paths_vector, false));
+  return GetPointer(env, obj)->Update(game_paths_vector);
 }
 
 JNIEXPORT jboolean JNICALL
@@ -104,8 +135,8 @@ Java_org_dolphinemu_dolphinemu_model_GameFileCache_updateAdditionalMetadata(JNIE
   return GetPointer(env, obj)->UpdateAdditionalMetadata();
 }
 
-JNIEXPORT jboolean JNICALL Java_org_dolphinemu_dolphinemu_model_GameFileCache_load(JNIEnv* env,
-                                                                                   jobject obj)
+JNIEXPORT jboolean JNICALL
+Java_org_dolphinemu_dolphinemu_model_GameFileCache_loadCache(JNIEnv* env, jobject obj)
 {
   return GetPointer(env, obj)->Load();
 }
@@ -593,6 +593,19 @@ JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_ReloadConfig
   SConfig::GetInstance().LoadSettings();
 }
 
+JNIEXPORT jint JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_GetLanguageAdjustedForRegion(
+    JNIEnv* env, jobject obj, jboolean wii, jint region)
+{
+  return static_cast<jint>(SConfig::GetInstance().GetLanguageAdjustedForRegion(
+      wii, static_cast<DiscIO::Region>(region)));
+}
+
+JNIEXPORT jboolean JNICALL
+Java_org_dolphinemu_dolphinemu_NativeLibrary_UseBuiltinTitleDatabase(JNIEnv* env, jobject obj)
+{
+  return SConfig::GetInstance().m_use_builtin_title_database;
+}
+
 JNIEXPORT void JNICALL Java_org_dolphinemu_dolphinemu_NativeLibrary_Initialize(JNIEnv* env,
                                                                                jobject obj)
 {